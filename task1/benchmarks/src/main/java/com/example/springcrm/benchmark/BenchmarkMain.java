@@ -0,0 +1,19 @@
+package com.example.springcrm.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+//Same as the JMH launcher, but results go to jmh-result.json unless another format is asked for with -rf.
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-rf")) {
+            arguments.addAll(List.of("-rf", "json"));
+        }
+        Main.main(arguments.toArray(new String[0]));
+    }
+}
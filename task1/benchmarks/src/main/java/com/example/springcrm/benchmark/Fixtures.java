@@ -0,0 +1,47 @@
+package com.example.springcrm.benchmark;
+
+import com.example.springcrm.model.Trainee;
+import com.example.springcrm.model.Trainer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class Fixtures {
+    //Services log every create, which would be measured as well.
+    static final String QUIET_LOGGING = "-Dorg.slf4j.simpleLogger.defaultLogLevel=off";
+
+    private static final String[] FIRST_NAMES = {"Ivan", "Petro", "Olena", "Maria", "Taras", "Sofia", "Andrii", "Iryna"};
+    private static final String[] LAST_NAMES = {"Ivanenko", "Petrenko", "Koval", "Shevchenko", "Bondar", "Melnyk"};
+
+    private Fixtures() {
+    }
+
+    static Trainee trainee(String firstName, String lastName) {
+        return new Trainee(firstName, lastName, null, null, true, null, "Kyiv", null);
+    }
+
+    //Usernames are unique, but share few name parts, like real data does.
+    static List<Trainee> trainees(int count) {
+        List<Trainee> trainees = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String firstName = FIRST_NAMES[i % FIRST_NAMES.length];
+            String lastName = LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length];
+            Trainee trainee = trainee(firstName, lastName);
+            trainee.setUsername(firstName + "." + lastName + i);
+            trainee.setUserId(Integer.toString(i + 1));
+            trainees.add(trainee);
+        }
+        return trainees;
+    }
+
+    static List<Trainer> trainers(int count) {
+        List<Trainer> trainers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String firstName = FIRST_NAMES[i % FIRST_NAMES.length];
+            String lastName = LAST_NAMES[(i / FIRST_NAMES.length) % LAST_NAMES.length];
+            trainers.add(new Trainer(firstName, lastName, firstName + "." + lastName + i, null, true,
+                    "Yoga", Integer.toString(i + 1)));
+        }
+        return trainers;
+    }
+}
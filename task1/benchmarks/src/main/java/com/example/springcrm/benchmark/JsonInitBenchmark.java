@@ -0,0 +1,81 @@
+package com.example.springcrm.benchmark;
+
+import com.example.springcrm.model.Trainee;
+import com.example.springcrm.storage.JsonSeedLoader;
+import com.example.springcrm.storage.TraineeStorage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+//Same steps as TraineeStorage.init() with seeding on: stream the JSON file from the classpath into the storage.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = Fixtures.QUIET_LOGGING)
+public class JsonInitBenchmark {
+    private static final String FILE_PATH = "benchmark-trainees.json";
+
+    @Param({"1000", "10000", "100000"})
+    public int trainees;
+
+    //0 loads on the calling thread.
+    @Param({"0", "4"})
+    public int parallelism;
+
+    private Path directory;
+    private ClassLoader classLoader;
+    private ForkJoinPool pool;
+    private JsonSeedLoader seedLoader;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("springcrm-benchmark");
+        new ObjectMapper().writeValue(directory.resolve(FILE_PATH).toFile(), Fixtures.trainees(trainees));
+        classLoader = new URLClassLoader(new URL[]{directory.toUri().toURL()}, getClass().getClassLoader());
+
+        pool = parallelism > 0 ? new ForkJoinPool(parallelism) : null;
+        seedLoader = new JsonSeedLoader(new ObjectMapper(), JsonSeedLoader.DEFAULT_BATCH_SIZE, pool);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public TraineeStorage loadSeedFile() {
+        //Seed files are looked up through the context class loader.
+        Thread.currentThread().setContextClassLoader(classLoader);
+        TraineeStorage storage = new TraineeStorage(new ConcurrentHashMap<>());
+        seedLoader.load(FILE_PATH, Trainee.class, storage::updateAll);
+        return storage;
+    }
+}
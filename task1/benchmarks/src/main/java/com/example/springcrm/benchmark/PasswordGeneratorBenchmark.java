@@ -0,0 +1,55 @@
+package com.example.springcrm.benchmark;
+
+import com.example.springcrm.service.PasswordGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//Throughput of one shared generator under contention, compared with the old new-Random-per-call approach.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class PasswordGeneratorBenchmark {
+    private static final int PASSWORD_LENGTH = 10;
+    private static final int BATCH_SIZE = 1000;
+    private static final String CHARACTERS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    private final PasswordGenerator passwordGenerator = new PasswordGenerator();
+
+    @Benchmark
+    public String generate() {
+        return passwordGenerator.generate(PASSWORD_LENGTH);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<String> generateBatch() {
+        return passwordGenerator.generate(BATCH_SIZE, PASSWORD_LENGTH);
+    }
+
+    @Benchmark
+    public String newRandomPerCall() {
+        Random random = new Random();
+        char[] password = new char[PASSWORD_LENGTH];
+        for (int i = 0; i < PASSWORD_LENGTH; i++) {
+            password[i] = CHARACTERS.charAt(random.nextInt(CHARACTERS.length()));
+        }
+        return new String(password);
+    }
+}
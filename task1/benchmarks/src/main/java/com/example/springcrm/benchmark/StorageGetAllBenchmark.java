@@ -0,0 +1,62 @@
+package com.example.springcrm.benchmark;
+
+import com.example.springcrm.model.Trainee;
+import com.example.springcrm.storage.TraineeStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = Fixtures.QUIET_LOGGING)
+public class StorageGetAllBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int trainees;
+
+    private TraineeStorage storage;
+    private Trainee changed;
+
+    @Setup
+    public void setUp() {
+        List<Trainee> values = Fixtures.trainees(trainees);
+        storage = new TraineeStorage(new ConcurrentHashMap<>());
+        storage.createAll(values);
+        changed = values.get(0);
+    }
+
+    //Nothing changes between calls, so the shared snapshot is returned.
+    @Benchmark
+    public List<Trainee> getAll() {
+        return storage.getAll();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<Trainee> getAllContended() {
+        return storage.getAll();
+    }
+
+    //A write before every read forces a fresh copy.
+    @Benchmark
+    public List<Trainee> getAllAfterWrite() {
+        storage.update(changed);
+        return storage.getAll();
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.springcrm.benchmark;
+
+import com.example.springcrm.dao.TraineeDao;
+import com.example.springcrm.model.Trainee;
+import com.example.springcrm.service.TraineeService;
+import com.example.springcrm.storage.TraineeStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+//Every created trainee has the same name, so each create goes through the username overlap path.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = Fixtures.QUIET_LOGGING)
+public class TraineeServiceBenchmark {
+
+    //Trainees that already have the colliding name before the iteration starts.
+    @Param({"0", "1000", "10000"})
+    public int existingCollisions;
+
+    private TraineeService traineeService;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        TraineeStorage storage = new TraineeStorage(new ConcurrentHashMap<>());
+        List<Trainee> existing = new ArrayList<>(existingCollisions);
+        for (int i = 0; i < existingCollisions; i++) {
+            Trainee trainee = Fixtures.trainee("Ivan", "Ivanenko");
+            trainee.setUsername(i == 0 ? "Ivan.Ivanenko" : "Ivan.Ivanenko" + i);
+            trainee.setUserId(Integer.toString(i + 1));
+            existing.add(trainee);
+        }
+        storage.createAll(existing);
+        traineeService = new TraineeService(new TraineeDao(storage));
+    }
+
+    @Benchmark
+    public void createColliding() {
+        traineeService.create(Fixtures.trainee("Ivan", "Ivanenko"));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void createCollidingContended() {
+        traineeService.create(Fixtures.trainee("Ivan", "Ivanenko"));
+    }
+}
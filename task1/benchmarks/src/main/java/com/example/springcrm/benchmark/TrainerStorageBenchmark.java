@@ -0,0 +1,58 @@
+package com.example.springcrm.benchmark;
+
+import com.example.springcrm.model.Trainer;
+import com.example.springcrm.storage.TrainerStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = Fixtures.QUIET_LOGGING)
+public class TrainerStorageBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int trainers;
+
+    private TrainerStorage storage;
+
+    @Setup
+    public void setUp() {
+        storage = new TrainerStorage(new ConcurrentHashMap<>());
+        storage.createAll(Fixtures.trainers(trainers));
+    }
+
+    //Selective substring: one first name, one last name and a number fragment.
+    @Benchmark
+    public List<Trainer> getAllByUsername() {
+        return storage.getAllByUsername("Olena.Koval1");
+    }
+
+    //Matches a large share of all trainers.
+    @Benchmark
+    public List<Trainer> getAllByUsernameBroad() {
+        return storage.getAllByUsername("enko");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public List<Trainer> getAllByUsernameContended() {
+        return storage.getAllByUsername("Olena.Koval1");
+    }
+}
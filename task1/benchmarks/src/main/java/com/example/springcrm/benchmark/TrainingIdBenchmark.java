@@ -0,0 +1,50 @@
+package com.example.springcrm.benchmark;
+
+import com.example.springcrm.model.Training;
+import com.example.springcrm.model.TrainingType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrainingIdBenchmark {
+
+    private Training training;
+    private Date trainingDate;
+
+    @Setup
+    public void setUp() {
+        trainingDate = new Date(1_700_000_000_000L);
+        training = new Training("trainee123", "trainer456", "John Doe",
+                TrainingType.of("Yoga"), trainingDate, Duration.ofHours(1));
+    }
+
+    //Key is cached in the training, so this is the steady state.
+    @Benchmark
+    public String getId() {
+        return training.getId();
+    }
+
+    //Setter drops the cached key, so the key and the id are built again.
+    @Benchmark
+    public String getIdAfterChange() {
+        training.setTrainingDate(trainingDate);
+        return training.getId();
+    }
+}
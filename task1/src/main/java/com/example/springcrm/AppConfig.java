@@ -1,34 +1,197 @@
 package com.example.springcrm;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.InitDestroyAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.PropertySource;
 
+import com.example.springcrm.dao.LookupCache;
+import com.example.springcrm.metrics.MetricNames;
+import com.example.springcrm.metrics.MetricsBeanPostProcessor;
 import com.example.springcrm.model.Trainee;
 import com.example.springcrm.model.Trainer;
 import com.example.springcrm.model.Training;
+import com.example.springcrm.model.TrainingKey;
+import com.example.springcrm.service.UsernameReservations;
+import com.example.springcrm.service.UsernameSuffixRegistry;
+import com.example.springcrm.storage.IdSequence;
+import com.example.springcrm.storage.JsonSeedLoader;
+import com.example.springcrm.storage.UsernameDirectory;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.composite.CompositeMeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.jmx.JmxConfig;
+import io.micrometer.jmx.JmxMeterRegistry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 
 
 @Configuration
 @ComponentScan(basePackages = "com.example.springcrm")
+@PropertySource("classpath:application.properties")
 public class AppConfig {
 
+    @Value("${storage.seed.batch-size:1000}")
+    private int seedBatchSize;
+
+    //0 loads seed files on the calling thread.
+    @Value("${storage.seed.parallelism:0}")
+    private int seedParallelism;
+
+    //0 size turns a cache off, 0 TTL keeps entries until they are evicted by size.
+    @Value("${cache.trainee.max-size:10000}")
+    private int traineeCacheSize;
+
+    @Value("${cache.trainee.ttl-seconds:300}")
+    private long traineeCacheTtlSeconds;
+
+    @Value("${cache.trainer.max-size:10000}")
+    private int trainerCacheSize;
+
+    @Value("${cache.trainer.ttl-seconds:300}")
+    private long trainerCacheTtlSeconds;
+
+    @Value("${metrics.jmx.enabled:true}")
+    private boolean jmxMetricsEnabled;
+
+    @Value("${metrics.jmx.domain:springcrm}")
+    private String jmxMetricsDomain;
+
+    //Spring 5 only picks up javax.annotation lifecycle methods on its own.
+    @Bean
+    public static InitDestroyAnnotationBeanPostProcessor jakartaLifecycleProcessor() {
+        InitDestroyAnnotationBeanPostProcessor processor = new InitDestroyAnnotationBeanPostProcessor();
+        processor.setInitAnnotationType(PostConstruct.class);
+        processor.setDestroyAnnotationType(PreDestroy.class);
+        return processor;
+    }
+
+    @Bean
+    public static MetricsBeanPostProcessor metricsBeanPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new MetricsBeanPostProcessor(meterRegistry);
+    }
+
+    //The local registry can always be read in-process, JMX export is added on top of it.
+    @Bean
+    public MeterRegistry meterRegistry() {
+        CompositeMeterRegistry registry = new CompositeMeterRegistry();
+        registry.add(new SimpleMeterRegistry());
+        if (jmxMetricsEnabled) {
+            registry.add(new JmxMeterRegistry(new JmxConfig() {
+                @Override
+                public String get(String key) {
+                    return null;
+                }
+
+                @Override
+                public String domain() {
+                    return jmxMetricsDomain;
+                }
+            }, Clock.SYSTEM));
+        }
+        return registry;
+    }
+
+    //One virtual thread per task where the runtime has them (Java 21+), a cached pool of daemon threads otherwise.
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService serviceExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "service-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Bean
+    public LookupCache<String, Trainee> traineeCache() {
+        return withMetrics(new LookupCache<>("trainee", traineeCacheSize, traineeCacheTtlSeconds, TimeUnit.SECONDS));
+    }
+
+    @Bean
+    public LookupCache<String, Trainer> trainerCache() {
+        return withMetrics(new LookupCache<>("trainer", trainerCacheSize, trainerCacheTtlSeconds, TimeUnit.SECONDS));
+    }
+
+    //Trainees and trainers share one username namespace, so their registrations share one reservation table.
+    @Bean
+    public UsernameReservations usernameReservations(UsernameDirectory usernameDirectory) {
+        return new UsernameReservations(usernameDirectory::contains,
+                UsernameSuffixRegistry.ofLastSuffix(usernameDirectory::lastSuffix));
+    }
+
+    //Storages rely on atomic putIfAbsent/remove and iterate while others write (getAll, stream, snapshots),
+    //so only a map with weakly consistent iterators will do; a synchronized HashMap would throw mid-iteration.
     @Bean
     public Map<String, Trainee> trainees() {
-        return new HashMap<>();  
+        return new ConcurrentHashMap<>();
     }
 
     @Bean
     public Map<String, Trainer> trainers() {
-        return new HashMap<>();  
+        return new ConcurrentHashMap<>();
+    }
+
+    @Bean
+    public Map<TrainingKey, Training> trainings() {
+        return new ConcurrentHashMap<>();
+    }
+
+    @Bean
+    public IdSequence traineeIds() {
+        return new IdSequence();
     }
 
     @Bean
-    public Map<String, Training> trainings() {
-        return new HashMap<>();  
+    public IdSequence trainerIds() {
+        return new IdSequence();
     }
 
+    @Bean
+    public IdSequence trainingIds() {
+        return new IdSequence();
+    }
+
+    @Bean
+    public JsonSeedLoader seedLoader() {
+        ForkJoinPool pool = seedParallelism > 0 ? new ForkJoinPool(seedParallelism) : null;
+        return new JsonSeedLoader(JsonSeedLoader.newObjectMapper(), seedBatchSize, pool);
+    }
+
+    private <K, V> LookupCache<K, V> withMetrics(LookupCache<K, V> cache) {
+        MeterRegistry registry = meterRegistry();
+        FunctionCounter.builder(MetricNames.CACHE_HITS, cache, LookupCache::getHitCount)
+                .tag("cache", cache.getName())
+                .register(registry);
+        FunctionCounter.builder(MetricNames.CACHE_MISSES, cache, LookupCache::getMissCount)
+                .tag("cache", cache.getName())
+                .register(registry);
+        FunctionCounter.builder(MetricNames.CACHE_EVICTIONS, cache, LookupCache::getEvictionCount)
+                .tag("cache", cache.getName())
+                .register(registry);
+        Gauge.builder(MetricNames.CACHE_SIZE, cache, LookupCache::size)
+                .tag("cache", cache.getName())
+                .register(registry);
+        return cache;
+    }
 }
\ No newline at end of file
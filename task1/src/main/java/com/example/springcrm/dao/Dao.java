@@ -1,17 +1,35 @@
 package com.example.springcrm.dao;
 
 import com.example.springcrm.model.User;
+import com.example.springcrm.storage.Page;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface Dao<T> {
     T get(String key);
 
-    void create(T t);
+    //Returns the created value, a copy of the given one if an immutable value needed an id.
+    T create(T t);
 
-    void update(T newValue);
+    //Returns the stored value. Versioned values are only stored if nobody changed them since they were read.
+    T update(T newValue);
 
     void delete(T value);
 
+    List<T> createAll(Collection<T> values);
+
+    List<T> updateAll(Collection<T> newValues);
+
+    void deleteAll(Collection<T> values);
+
+    //Empties the storage along with everything the DAO keeps about it (caches, statistics, usernames).
+    void cleanAll();
+
     List<T> getAll();
+
+    Page<T> getPage(String cursor, int size);
+
+    Stream<T> stream();
 }
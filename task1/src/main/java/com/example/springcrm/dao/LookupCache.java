@@ -0,0 +1,163 @@
+package com.example.springcrm.dao;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+//Bounded read-through cache for DAO lookups: least recently used entries go first, every entry expires after the TTL.
+//Misses are not cached. A load that overlaps an invalidation is returned but not stored, so it cannot bring back a stale value.
+//Hits take no lock: entries only remember when they were last used, and the cache is trimmed in batches once it is full,
+//so the order is approximate and the size can run a little over the limit while another thread is trimming.
+public class LookupCache<K, V> {
+    private final String name;
+    private final int maxSize;
+    private final long ttlNanos;
+    //Entries trimmed past the limit at a time, so a full cache is not sorted on every put.
+    private final int evictionBatch;
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    //0 size turns caching off, 0 TTL keeps entries until they are evicted by size.
+    public LookupCache(String name, int maxSize, long ttl, TimeUnit ttlUnit) {
+        if (maxSize < 0 || ttl < 0) {
+            throw new IllegalArgumentException("Cache size and TTL can't be negative: " + maxSize + ", " + ttl);
+        }
+        this.name = name;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlUnit.toNanos(ttl);
+        this.evictionBatch = maxSize / 16;
+    }
+
+    public V get(K key, Function<K, V> loader) {
+        if (maxSize == 0) {
+            misses.increment();
+            return loader.apply(key);
+        }
+
+        Entry<V> entry = entries.get(key);
+        if (entry != null) {
+            long now = System.nanoTime();
+            if (!entry.isExpired(now)) {
+                entry.lastUsed = now;
+                hits.increment();
+                return entry.value;
+            }
+            if (entries.remove(key, entry)) {
+                evictions.increment();
+            }
+        }
+
+        long stamp = invalidations.get();
+        misses.increment();
+        V value = loader.apply(key);
+        if (value != null) {
+            long now = System.nanoTime();
+            Entry<V> loaded = new Entry<>(value, ttlNanos == 0 ? 0 : now + ttlNanos, now);
+            //Invalidations bump the stamp before they remove, so either this sees the new stamp or the removal comes after.
+            entries.compute(key, (entryKey, current) -> stamp == invalidations.get() ? loaded : current);
+            if (entries.size() > maxSize) {
+                evict();
+            }
+        }
+        return value;
+    }
+
+    //Has to be called after the storage write, so a load that starts later sees the new value.
+    public void invalidate(K key) {
+        invalidations.incrementAndGet();
+        entries.remove(key);
+    }
+
+    public void invalidateAll(Collection<K> keys) {
+        invalidations.incrementAndGet();
+        for (K key : keys) {
+            entries.remove(key);
+        }
+    }
+
+    public void clear() {
+        invalidations.incrementAndGet();
+        entries.clear();
+    }
+
+    //One thread trims at a time, the others carry on without waiting for it.
+    private void evict() {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            int excess = entries.size() - maxSize;
+            if (excess <= 0) {
+                return;
+            }
+            List<Map.Entry<K, Entry<V>>> oldestFirst = new ArrayList<>(entries.entrySet());
+            oldestFirst.sort(Comparator.comparingLong(candidate -> candidate.getValue().lastUsed));
+            int toEvict = Math.min(oldestFirst.size(), excess + evictionBatch);
+            for (int i = 0; i < toEvict; i++) {
+                Map.Entry<K, Entry<V>> candidate = oldestFirst.get(i);
+                if (entries.remove(candidate.getKey(), candidate.getValue())) {
+                    evictions.increment();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+        return total == 0 ? 0 : (double) hitCount / total;
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        //0 means the entry does not expire.
+        private final long expiresAt;
+        //Written on hits without a lock, a lost update only makes the entry look a little older.
+        private volatile long lastUsed;
+
+        private Entry(V value, long expiresAt, long lastUsed) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+            this.lastUsed = lastUsed;
+        }
+
+        private boolean isExpired(long now) {
+            return expiresAt != 0 && now - expiresAt >= 0;
+        }
+    }
+}
@@ -2,66 +2,161 @@ package com.example.springcrm.dao;
 
 import com.example.springcrm.exception.OutdatedUsernameException;
 import com.example.springcrm.exception.UserAlreadyExistsException;
+import com.example.springcrm.exception.VersionConflictException;
 import com.example.springcrm.model.User;
 import com.example.springcrm.model.Trainee;
+import com.example.springcrm.storage.Page;
 import com.example.springcrm.storage.Storage;
 import com.example.springcrm.storage.TraineeStorage;
+import com.example.springcrm.storage.UsernameDirectory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public class TraineeDao implements Dao<Trainee> {
+    private static final String USERNAME_OWNER = "trainee";
+
     private final Storage<Trainee> storage;
+    //Lookups by username go straight to storage unless a cache is configured.
+    private LookupCache<String, Trainee> cache;
+    //Shared with the trainer DAO when it is configured, so a username belongs to one user of either kind.
+    private UsernameDirectory usernameDirectory;
 
     @Autowired
     public TraineeDao(@Qualifier("traineeStorage") Storage<Trainee> storage) {
         this.storage = storage;
     }
 
+    @Autowired(required = false)
+    public void setCache(@Qualifier("traineeCache") LookupCache<String, Trainee> cache) {
+        this.cache = cache;
+    }
+
+    //Existing trainees are registered right away, usernames that already belong to trainers are left as they are.
+    @Autowired(required = false)
+    public void setUsernameDirectory(UsernameDirectory usernameDirectory) {
+        this.usernameDirectory = usernameDirectory;
+        getAll().forEach(trainee -> usernameDirectory.register(trainee.getUsername(), USERNAME_OWNER));
+    }
+
+    //Storage and cache keep immutable values, callers get a mutable copy they can change and pass to update.
     @Override
     public Trainee get(String id) {
-        return storage.get(id);
+        Trainee stored = cache == null ? storage.get(id) : cache.get(id, storage::get);
+        return stored == null ? null : stored.clone();
     }
 
     @Override
-    public void create(Trainee trainee) throws UserAlreadyExistsException {
+    public Trainee create(Trainee trainee) throws UserAlreadyExistsException {
         if (trainee.getUserId() == null) {
-            trainee.setUserId(storage.getNextId());
+            trainee = withUserId(trainee, storage.getNextId());
         }
-        if (storage.get(trainee) == null) {
-            storage.update(trainee);
-        } else {
+        List<String> registered = registerUsernames(List.of(trainee));
+        if (storage.create(trainee) == null) {
+            unregisterUsernames(registered);
             throw new UserAlreadyExistsException(String.format(
                 "Trainee %s %s already exists",
                 trainee.getFirstName(),
                 trainee.getLastName()
                 ));
         }
+        return trainee;
     }
 
     @Override
-    public void update(Trainee trainee) throws OutdatedUsernameException {
-        Trainee oldVersion = storage.get(trainee);
+    public Trainee update(Trainee trainee)
+            throws OutdatedUsernameException, UserAlreadyExistsException, VersionConflictException {
+        validateTrainee(storage.get(trainee), trainee);
 
-        if (oldVersion != null 
-            && User.userNameHasChanged(oldVersion, trainee)) {
-            throw new OutdatedUsernameException(String.format(
-                    "Trainee name %s %s has been updated to %s %s and its username should be changed",
-                    oldVersion.getFirstName(), oldVersion.getLastName(),
-                    trainee.getFirstName(), trainee.getLastName()
+        List<String> registered = registerUsernames(List.of(trainee));
+        Trainee stored = traineeStorage().compareAndUpdate(trainee);
+        invalidate(trainee);
+        if (stored == null) {
+            unregisterUsernames(registered);
+            throw new VersionConflictException(String.format(
+                    "Trainee %s was changed since version %d, reload it and try again",
+                    trainee.getUsername(),
+                    trainee.getVersion()
             ));
         }
+        return updated(trainee, stored);
+    }
+
+    @Override
+    public List<Trainee> createAll(Collection<Trainee> trainees) throws UserAlreadyExistsException {
+        long withoutId = trainees.stream()
+                .filter(trainee -> trainee.getUserId() == null)
+                .count();
+        List<Trainee> withIds = new ArrayList<>(trainees);
+        if (withoutId > 0) {
+            Iterator<String> ids = storage.getNextIds((int) withoutId).iterator();
+            withIds.replaceAll(trainee -> trainee.getUserId() == null ? withUserId(trainee, ids.next()) : trainee);
+        }
+
+        List<String> registered = registerUsernames(withIds);
+        if (storage.createAll(withIds) == null) {
+            unregisterUsernames(registered);
+            throw new UserAlreadyExistsException("Some of the trainees already exist, none were created");
+        }
+        return withIds;
+    }
+
+    @Override
+    public List<Trainee> updateAll(Collection<Trainee> trainees)
+            throws OutdatedUsernameException, UserAlreadyExistsException, VersionConflictException {
+        for (Trainee trainee : trainees) {
+            validateTrainee(storage.get(trainee), trainee);
+        }
+
+        List<String> registered = registerUsernames(trainees);
+        List<Trainee> stored = traineeStorage().compareAndUpdateAll(trainees);
+        invalidateAll(trainees);
+        if (stored == null) {
+            unregisterUsernames(registered);
+            throw new VersionConflictException("Some of the trainees were changed or repeated, none were updated");
+        }
 
-        storage.update(trainee);
+        List<Trainee> updated = new ArrayList<>(stored.size());
+        Iterator<Trainee> given = trainees.iterator();
+        for (Trainee trainee : stored) {
+            updated.add(updated(given.next(), trainee));
+        }
+        return updated;
     }
 
 
     @Override
     public void delete(Trainee trainee) {
         storage.delete(trainee);
+        invalidate(trainee);
+        unregisterUsernames(Collections.singletonList(trainee.getUsername()));
+    }
+
+    @Override
+    public void deleteAll(Collection<Trainee> trainees) {
+        storage.deleteAll(trainees);
+        invalidateAll(trainees);
+        unregisterUsernames(trainees.stream().map(Trainee::getUsername).toList());
+    }
+
+    //Cached trainees and their usernames go with the storage.
+    @Override
+    public void cleanAll() {
+        storage.cleanAll();
+        if (cache != null) {
+            cache.clear();
+        }
+        if (usernameDirectory != null) {
+            usernameDirectory.unregisterAll(USERNAME_OWNER);
+        }
     }
 
     @Override
@@ -69,7 +164,103 @@ public class TraineeDao implements Dao<Trainee> {
         return storage.getAll();
     }
 
+    @Override
+    public Page<Trainee> getPage(String cursor, int size) {
+        return storage.getPage(cursor, size);
+    }
+
+    @Override
+    public Stream<Trainee> stream() {
+        return storage.stream();
+    }
+
     public List<Trainee> getAllByUsername(String usernameSubstring) {
-        return ((TraineeStorage) storage).getAllByUsername(usernameSubstring);
+        return traineeStorage().getAllByUsername(usernameSubstring);
+    }
+
+    public List<Trainee> getAllByUsernamePrefix(String usernamePrefix) {
+        return traineeStorage().getAllByUsernamePrefix(usernamePrefix);
+    }
+
+    //With the directory this is one lookup and covers trainers too.
+    public boolean isUsernameTaken(String username) {
+        return usernameDirectory != null ? usernameDirectory.contains(username) : get(username) != null;
+    }
+
+    //Immutable values are copied, mutable ones keep getting their id in place.
+    private static Trainee withUserId(Trainee trainee, String userId) {
+        if (trainee.isImmutable()) {
+            return trainee.withUserId(userId);
+        }
+        trainee.setUserId(userId);
+        return trainee;
+    }
+
+    //Immutable values get the stored copy, mutable ones keep getting the new version in place.
+    private static Trainee updated(Trainee trainee, Trainee stored) {
+        if (trainee.isImmutable()) {
+            return stored;
+        }
+        trainee.setVersion(stored.getVersion());
+        return trainee;
+    }
+
+    private TraineeStorage traineeStorage() {
+        return (TraineeStorage) storage;
+    }
+
+    //Returns the usernames that were new to the directory, so a failed write can give them back.
+    private List<String> registerUsernames(Collection<Trainee> trainees) throws UserAlreadyExistsException {
+        if (usernameDirectory == null) {
+            return List.of();
+        }
+        List<String> registered = new ArrayList<>();
+        for (Trainee trainee : trainees) {
+            if (trainee.getUsername() == null) {
+                continue;
+            }
+            String owner = usernameDirectory.register(trainee.getUsername(), USERNAME_OWNER);
+            if (owner == null) {
+                registered.add(trainee.getUsername());
+            } else if (!owner.equals(USERNAME_OWNER)) {
+                unregisterUsernames(registered);
+                throw new UserAlreadyExistsException(String.format(
+                        "Username %s is already taken by a %s", trainee.getUsername(), owner));
+            }
+        }
+        return registered;
+    }
+
+    private void unregisterUsernames(Collection<String> usernames) {
+        if (usernameDirectory != null) {
+            for (String username : usernames) {
+                if (username != null) {
+                    usernameDirectory.unregister(username, USERNAME_OWNER);
+                }
+            }
+        }
+    }
+
+    private void invalidate(Trainee trainee) {
+        if (cache != null) {
+            cache.invalidate(trainee.getUsername());
+        }
+    }
+
+    private void invalidateAll(Collection<Trainee> trainees) {
+        if (cache != null) {
+            cache.invalidateAll(trainees.stream().map(Trainee::getUsername).toList());
+        }
+    }
+
+    private void validateTrainee(Trainee oldVersion, Trainee newVersion) throws OutdatedUsernameException {
+        if (oldVersion != null
+            && User.userNameHasChanged(oldVersion, newVersion)) {
+            throw new OutdatedUsernameException(String.format(
+                    "Trainee name %s %s has been updated to %s %s and its username should be changed",
+                    oldVersion.getFirstName(), oldVersion.getLastName(),
+                    newVersion.getFirstName(), newVersion.getLastName()
+            ));
+        }
     }
 }
@@ -2,55 +2,136 @@ package com.example.springcrm.dao;
 
 import com.example.springcrm.exception.OutdatedUsernameException;
 import com.example.springcrm.exception.UserAlreadyExistsException;
+import com.example.springcrm.exception.VersionConflictException;
 import com.example.springcrm.model.Trainer;
 import com.example.springcrm.model.User;
+import com.example.springcrm.storage.Page;
 import com.example.springcrm.storage.Storage;
 import com.example.springcrm.storage.TrainerStorage;
+import com.example.springcrm.storage.UsernameDirectory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public class TrainerDao implements Dao<Trainer> {
+    private static final String USERNAME_OWNER = "trainer";
+
     private final Storage storage;
+    //Lookups by username go straight to storage unless a cache is configured.
+    private LookupCache<String, Trainer> cache;
+    //Shared with the trainee DAO when it is configured, so a username belongs to one user of either kind.
+    private UsernameDirectory usernameDirectory;
 
     @Autowired
     public TrainerDao(@Qualifier("trainerStorage") Storage storage) {
         this.storage = storage;
     }
 
-    @Override
+    @Autowired(required = false)
+    public void setCache(@Qualifier("trainerCache") LookupCache<String, Trainer> cache) {
+        this.cache = cache;
+    }
+
+    //Existing trainers are registered right away, usernames that already belong to trainees are left as they are.
+    @Autowired(required = false)
+    public void setUsernameDirectory(UsernameDirectory usernameDirectory) {
+        this.usernameDirectory = usernameDirectory;
+        getAll().forEach(trainer -> usernameDirectory.register(trainer.getUsername(), USERNAME_OWNER));
+    }
 
+    //Storage and cache keep immutable values, callers get a mutable copy they can change and pass to update.
+    @Override
     public Trainer get(String id) {
-        return (Trainer) storage.get(id);
+        Trainer stored = cache == null ? (Trainer) storage.get(id) : cache.get(id, key -> (Trainer) storage.get(key));
+        return stored == null ? null : stored.clone();
     }
 
     @Override
-    public void create(Trainer trainer) throws UserAlreadyExistsException {
-        String key = trainer.getUsername();
+    public Trainer create(Trainer trainer) throws UserAlreadyExistsException {
         if (trainer.getUserId() == null) {
-            trainer.setUserId(storage.getNextId());
+            trainer = withUserId(trainer, storage.getNextId());
         }
-        if (storage.get(key) == null) {
-            storage.update(trainer);
-        } else {
+        List<String> registered = registerUsernames(List.of(trainer));
+        if (storage.create(trainer) == null) {
+            unregisterUsernames(registered);
             throw new UserAlreadyExistsException(String.format(
                 "Trainer %s %s already exists",
                 trainer.getFirstName(),
                 trainer.getLastName()
                 ));
         }
+        return trainer;
     }
 
     @Override
-    public void update(Trainer trainer) throws OutdatedUsernameException, UserAlreadyExistsException{
+    public Trainer update(Trainer trainer)
+            throws OutdatedUsernameException, UserAlreadyExistsException, VersionConflictException {
         Trainer oldVersion = (Trainer) storage.get(trainer);
 
         validateTrainer(oldVersion, trainer);
 
-        storage.update(trainer);
+        List<String> registered = registerUsernames(List.of(trainer));
+        Trainer stored = trainerStorage().compareAndUpdate(trainer);
+        invalidate(trainer);
+        if (stored == null) {
+            unregisterUsernames(registered);
+            throw new VersionConflictException(String.format(
+                    "Trainer %s was changed since version %d, reload it and try again",
+                    trainer.getUsername(),
+                    trainer.getVersion()
+            ));
+        }
+        return updated(trainer, stored);
+    }
+
+    @Override
+    public List<Trainer> createAll(Collection<Trainer> trainers) throws UserAlreadyExistsException {
+        long withoutId = trainers.stream()
+                .filter(trainer -> trainer.getUserId() == null)
+                .count();
+        List<Trainer> withIds = new ArrayList<>(trainers);
+        if (withoutId > 0) {
+            Iterator<String> ids = storage.getNextIds((int) withoutId).iterator();
+            withIds.replaceAll(trainer -> trainer.getUserId() == null ? withUserId(trainer, ids.next()) : trainer);
+        }
+
+        List<String> registered = registerUsernames(withIds);
+        if (storage.createAll(withIds) == null) {
+            unregisterUsernames(registered);
+            throw new UserAlreadyExistsException("Some of the trainers already exist, none were created");
+        }
+        return withIds;
+    }
+
+    @Override
+    public List<Trainer> updateAll(Collection<Trainer> trainers)
+            throws OutdatedUsernameException, UserAlreadyExistsException, VersionConflictException {
+        for (Trainer trainer : trainers) {
+            validateTrainer((Trainer) storage.get(trainer), trainer);
+        }
+
+        List<String> registered = registerUsernames(trainers);
+        List<Trainer> stored = trainerStorage().compareAndUpdateAll(trainers);
+        invalidateAll(trainers);
+        if (stored == null) {
+            unregisterUsernames(registered);
+            throw new VersionConflictException("Some of the trainers were changed or repeated, none were updated");
+        }
+
+        List<Trainer> updated = new ArrayList<>(stored.size());
+        Iterator<Trainer> given = trainers.iterator();
+        for (Trainer trainer : stored) {
+            updated.add(updated(given.next(), trainer));
+        }
+        return updated;
     }
 
     @Override
@@ -59,13 +140,119 @@ public class TrainerDao implements Dao<Trainer> {
         return storage.getAll();
     }
 
+    @Override
+    public Page<Trainer> getPage(String cursor, int size) {
+        return storage.getPage(cursor, size);
+    }
+
+    @Override
+    public Stream<Trainer> stream() {
+        return storage.stream();
+    }
+
     @Override
     public void delete(Trainer trainer) {
         storage.delete(trainer);
+        invalidate(trainer);
+        unregisterUsernames(Collections.singletonList(trainer.getUsername()));
+    }
+
+    @Override
+    public void deleteAll(Collection<Trainer> trainers) {
+        storage.deleteAll(trainers);
+        invalidateAll(trainers);
+        unregisterUsernames(trainers.stream().map(Trainer::getUsername).toList());
+    }
+
+    //Cached trainers and their usernames go with the storage.
+    @Override
+    public void cleanAll() {
+        storage.cleanAll();
+        if (cache != null) {
+            cache.clear();
+        }
+        if (usernameDirectory != null) {
+            usernameDirectory.unregisterAll(USERNAME_OWNER);
+        }
     }
 
     public List<Trainer> getAllByUsername(String usernameSubtring) {
-        return ((TrainerStorage) storage).getAllByUsername(usernameSubtring);
+        return trainerStorage().getAllByUsername(usernameSubtring);
+    }
+
+    public List<Trainer> getAllByUsernamePrefix(String usernamePrefix) {
+        return trainerStorage().getAllByUsernamePrefix(usernamePrefix);
+    }
+
+    //With the directory this is one lookup and covers trainees too.
+    public boolean isUsernameTaken(String username) {
+        return usernameDirectory != null ? usernameDirectory.contains(username) : get(username) != null;
+    }
+
+    //Immutable values are copied, mutable ones keep getting their id in place.
+    private static Trainer withUserId(Trainer trainer, String userId) {
+        if (trainer.isImmutable()) {
+            return trainer.withUserId(userId);
+        }
+        trainer.setUserId(userId);
+        return trainer;
+    }
+
+    //Immutable values get the stored copy, mutable ones keep getting the new version in place.
+    private static Trainer updated(Trainer trainer, Trainer stored) {
+        if (trainer.isImmutable()) {
+            return stored;
+        }
+        trainer.setVersion(stored.getVersion());
+        return trainer;
+    }
+
+    private TrainerStorage trainerStorage() {
+        return (TrainerStorage) storage;
+    }
+
+    //Returns the usernames that were new to the directory, so a failed write can give them back.
+    private List<String> registerUsernames(Collection<Trainer> trainers) throws UserAlreadyExistsException {
+        if (usernameDirectory == null) {
+            return List.of();
+        }
+        List<String> registered = new ArrayList<>();
+        for (Trainer trainer : trainers) {
+            if (trainer.getUsername() == null) {
+                continue;
+            }
+            String owner = usernameDirectory.register(trainer.getUsername(), USERNAME_OWNER);
+            if (owner == null) {
+                registered.add(trainer.getUsername());
+            } else if (!owner.equals(USERNAME_OWNER)) {
+                unregisterUsernames(registered);
+                throw new UserAlreadyExistsException(String.format(
+                        "Username %s is already taken by a %s", trainer.getUsername(), owner));
+            }
+        }
+        return registered;
+    }
+
+    private void unregisterUsernames(Collection<String> usernames) {
+        if (usernameDirectory != null) {
+            for (String username : usernames) {
+                if (username != null) {
+                    usernameDirectory.unregister(username, USERNAME_OWNER);
+                }
+            }
+        }
+    }
+
+    private void invalidate(Trainer trainer) {
+        if (cache != null) {
+            cache.invalidate(trainer.getUsername());
+        }
+    }
+
+    private void invalidateAll(Collection<Trainer> trainers) {
+        if (cache != null) {
+            cache.invalidateAll(trainers.stream().map(Trainer::getUsername).toList());
+        }
     }
 
     private void validateTrainer(Trainer oldVersion, Trainer newVersion)
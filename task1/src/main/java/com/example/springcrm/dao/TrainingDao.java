@@ -1,40 +1,72 @@
 package com.example.springcrm.dao;
 
 import com.example.springcrm.model.Training;
+import com.example.springcrm.model.TrainingTotals;
+import com.example.springcrm.model.TrainingType;
+import com.example.springcrm.storage.Change;
+import com.example.springcrm.storage.Page;
 import com.example.springcrm.storage.Storage;
+import com.example.springcrm.storage.TrainingQueries;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 @Repository
 public class TrainingDao implements Dao<Training> {
     private final Storage storage;
+    //Kept in step with every change made through this DAO.
+    private final TrainingStatistics statistics = new TrainingStatistics();
 
     @Autowired
     public TrainingDao(@Qualifier("trainingStorage") Storage storage) {
         this.storage = storage;
+        storage.stream().forEach(training -> statistics.add((Training) training));
     }
 
+    //Storage keeps immutable values, callers get a mutable copy they can change and pass to update.
     @Override
     public Training get(String id) {
-        return (Training) storage.get(id);
+        Training stored = (Training) storage.get(id);
+        return stored == null ? null : stored.clone();
     }
 
     @Override
-    public void create(Training training) throws IllegalArgumentException {
-        String key = training.getId();
-        if (storage.get(key) == null) {
-            storage.update(training);
-        } else {
+    public Training create(Training training) throws IllegalArgumentException {
+        Training stored = (Training) storage.create(training);
+        if (stored == null) {
             throw new IllegalArgumentException("Training already exists");
         }
+        statistics.add(stored);
+        return training;
     }
 
     @Override
-    public void update(Training newValue) {
-        storage.update(newValue);
+    public Training update(Training newValue) {
+        count((Change<Training>) storage.update(newValue));
+        return newValue;
+    }
+
+    @Override
+    public List<Training> createAll(Collection<Training> trainings) throws IllegalArgumentException {
+        List<Training> stored = storage.createAll(trainings);
+        if (stored == null) {
+            throw new IllegalArgumentException("Some of the trainings already exist, none were created");
+        }
+        stored.forEach(statistics::add);
+        return new ArrayList<>(trainings);
+    }
+
+    @Override
+    public List<Training> updateAll(Collection<Training> trainings) {
+        List<Change<Training>> changes = storage.updateAll(trainings);
+        changes.forEach(this::count);
+        return new ArrayList<>(trainings);
     }
 
     @Override
@@ -42,8 +74,79 @@ public class TrainingDao implements Dao<Training> {
         return storage.getAll();
     }
 
+    @Override
+    public Page<Training> getPage(String cursor, int size) {
+        return storage.getPage(cursor, size);
+    }
+
+    @Override
+    public Stream<Training> stream() {
+        return storage.stream();
+    }
+
     @Override
     public void delete(Training training) {
-        storage.delete(training);
+        Training removed = (Training) storage.delete(training);
+        if (removed != null) {
+            statistics.remove(removed);
+        }
+    }
+
+    @Override
+    public void deleteAll(Collection<Training> trainings) {
+        List<Training> removed = storage.deleteAll(trainings);
+        removed.forEach(statistics::remove);
+    }
+
+    //Statistics go with the storage, so totals start from zero as well.
+    @Override
+    public void cleanAll() {
+        storage.cleanAll();
+        statistics.clear();
+    }
+
+    public List<Training> getAllByTraineeId(String traineeId) {
+        return ((TrainingQueries) storage).getAllByTraineeId(traineeId);
+    }
+
+    public List<Training> getAllByTrainerId(String trainerId) {
+        return ((TrainingQueries) storage).getAllByTrainerId(trainerId);
+    }
+
+    public List<Training> getAllByTrainingType(TrainingType trainingType) {
+        return ((TrainingQueries) storage).getAllByTrainingType(trainingType);
+    }
+
+    public List<Training> getAllBetween(Date from, Date to) {
+        return ((TrainingQueries) storage).getAllBetween(from, to);
+    }
+
+    public List<Training> getAllByTraineeIdBetween(String traineeId, Date from, Date to) {
+        return ((TrainingQueries) storage).getAllByTraineeIdBetween(traineeId, from, to);
+    }
+
+    public List<Training> getAllByTrainerIdBetween(String trainerId, Date from, Date to) {
+        return ((TrainingQueries) storage).getAllByTrainerIdBetween(trainerId, from, to);
+    }
+
+    public TrainingTotals getTotalsByTrainerId(String trainerId) {
+        return statistics.getByTrainerId(trainerId);
+    }
+
+    public TrainingTotals getTotalsByTraineeId(String traineeId) {
+        return statistics.getByTraineeId(traineeId);
+    }
+
+    public TrainingTotals getTotalsByTrainingType(TrainingType trainingType) {
+        return statistics.getByTrainingType(trainingType);
+    }
+
+    //Statistics count what storage kept, which can be coarser than what it was given (off-heap storage keeps whole seconds).
+    //Both values come from inside the write, so concurrent writes of one key still add up: each removes what it replaced.
+    private void count(Change<Training> change) {
+        if (change.getReplaced() != null) {
+            statistics.remove(change.getReplaced());
+        }
+        statistics.add(change.getStored());
     }
 }
\ No newline at end of file
@@ -0,0 +1,83 @@
+package com.example.springcrm.dao;
+
+import com.example.springcrm.model.Training;
+import com.example.springcrm.model.TrainingTotals;
+import com.example.springcrm.model.TrainingType;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+//Running counts and duration sums per trainer, trainee and type, kept as {count, millis} long pairs.
+//Pairs are changed inside compute(), so a reader never sees the count and the sum out of step.
+public class TrainingStatistics {
+    private static final int COUNT = 0;
+    private static final int MILLIS = 1;
+
+    private final Map<String, long[]> byTrainerId = new ConcurrentHashMap<>();
+    private final Map<String, long[]> byTraineeId = new ConcurrentHashMap<>();
+    private final Map<TrainingType, long[]> byTrainingType = new ConcurrentHashMap<>();
+
+    public void add(Training training) {
+        change(training, 1);
+    }
+
+    public void remove(Training training) {
+        change(training, -1);
+    }
+
+    public void clear() {
+        byTrainerId.clear();
+        byTraineeId.clear();
+        byTrainingType.clear();
+    }
+
+    public TrainingTotals getByTrainerId(String trainerId) {
+        return totalsOf(byTrainerId, trainerId);
+    }
+
+    public TrainingTotals getByTraineeId(String traineeId) {
+        return totalsOf(byTraineeId, traineeId);
+    }
+
+    public TrainingTotals getByTrainingType(TrainingType trainingType) {
+        return totalsOf(byTrainingType, trainingType);
+    }
+
+    private void change(Training training, int sign) {
+        Duration duration = training.getTrainingDuration();
+        long millis = duration == null ? 0 : duration.toMillis();
+        changeTotals(byTrainerId, training.getTrainerId(), sign, sign * millis);
+        changeTotals(byTraineeId, training.getTraineeId(), sign, sign * millis);
+        changeTotals(byTrainingType, training.getTrainingType(), sign, sign * millis);
+    }
+
+    private static <K> void changeTotals(Map<K, long[]> totals, K key, int count, long millis) {
+        if (key == null) {
+            return;
+        }
+        totals.compute(key, (totalsKey, pair) -> {
+            if (pair == null) {
+                pair = new long[2];
+            }
+            pair[COUNT] += count;
+            pair[MILLIS] += millis;
+            return pair[COUNT] == 0 ? null : pair;
+        });
+    }
+
+    private static <K> TrainingTotals totalsOf(Map<K, long[]> totals, K key) {
+        if (key == null) {
+            return TrainingTotals.EMPTY;
+        }
+        long[] snapshot = new long[2];
+        totals.computeIfPresent(key, (totalsKey, pair) -> {
+            snapshot[COUNT] = pair[COUNT];
+            snapshot[MILLIS] = pair[MILLIS];
+            return pair;
+        });
+        return snapshot[COUNT] == 0
+                ? TrainingTotals.EMPTY
+                : new TrainingTotals(snapshot[COUNT], Duration.ofMillis(snapshot[MILLIS]));
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.springcrm.exception;
+
+public class VersionConflictException extends RuntimeException {
+    public VersionConflictException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.springcrm.metrics;
+
+public final class MetricNames {
+    public static final String STORAGE_OPERATIONS = "storage.operations";
+    public static final String STORAGE_SIZE = "storage.size";
+    //Covers seed loading, snapshot loading and write-ahead log replay.
+    public static final String STORAGE_INIT = "storage.init";
+    public static final String DAO_OPERATIONS = "dao.operations";
+    public static final String USERNAME_COLLISIONS = "username.collisions";
+    public static final String CACHE_HITS = "cache.hits";
+    public static final String CACHE_MISSES = "cache.misses";
+    public static final String CACHE_EVICTIONS = "cache.evictions";
+    public static final String CACHE_SIZE = "cache.size";
+
+    static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private MetricNames() {
+    }
+}
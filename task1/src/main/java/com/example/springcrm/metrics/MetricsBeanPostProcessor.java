@@ -0,0 +1,74 @@
+package com.example.springcrm.metrics;
+
+import com.example.springcrm.dao.Dao;
+import com.example.springcrm.storage.Storage;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.core.Ordered;
+import org.springframework.core.PriorityOrdered;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+//Wraps storages and DAOs into timing proxies and records how long each storage took to initialize.
+//Runs first, so the time between its two callbacks spans the @PostConstruct init of the storage.
+//Registered by AppConfig, priority post-processors are created before annotation-driven injection is available.
+public class MetricsBeanPostProcessor implements BeanPostProcessor, PriorityOrdered {
+    private final ObjectProvider<MeterRegistry> meterRegistry;
+    private final Map<String, Long> initStarts = new ConcurrentHashMap<>();
+
+    //The registry is looked up lazily, creating it here would pull AppConfig in before its @Value fields are set.
+    public MetricsBeanPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Object postProcessBeforeInitialization(Object bean, String beanName) {
+        if (bean instanceof Storage) {
+            initStarts.put(beanName, System.nanoTime());
+        }
+        return bean;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof Storage) {
+            MeterRegistry registry = meterRegistry.getObject();
+            Long start = initStarts.remove(beanName);
+            if (start != null) {
+                Timer.builder(MetricNames.STORAGE_INIT)
+                        .tag("storage", beanName)
+                        .register(registry)
+                        .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            Gauge.builder(MetricNames.STORAGE_SIZE, (Storage<?>) bean, Storage::size)
+                    .tag("storage", beanName)
+                    .register(registry);
+            return proxy(bean, new TimingInterceptor(registry, MetricNames.STORAGE_OPERATIONS, "storage", beanName));
+        }
+        if (bean instanceof Dao) {
+            MeterRegistry registry = meterRegistry.getObject();
+            return proxy(bean, new TimingInterceptor(registry, MetricNames.DAO_OPERATIONS, "dao", beanName));
+        }
+        return bean;
+    }
+
+    @Override
+    public int getOrder() {
+        return Ordered.HIGHEST_PRECEDENCE;
+    }
+
+    //Class proxies, DAOs and services depend on the concrete types and cast storages to them.
+    private static Object proxy(Object bean, MethodInterceptor interceptor) {
+        ProxyFactory factory = new ProxyFactory(bean);
+        factory.setProxyTargetClass(true);
+        factory.addAdvice(interceptor);
+        return factory.getProxy(bean.getClass().getClassLoader());
+    }
+}
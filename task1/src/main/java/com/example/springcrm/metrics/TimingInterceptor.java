@@ -0,0 +1,54 @@
+package com.example.springcrm.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+//Times every call on the proxied bean, one timer per method, failed calls are tagged with the exception.
+//Methods returning a Stream are timed until the stream is created, not until it is consumed.
+class TimingInterceptor implements MethodInterceptor {
+    private static final String NO_EXCEPTION = "none";
+
+    private final MeterRegistry registry;
+    private final String metricName;
+    private final String beanTag;
+    private final String beanName;
+    private final Map<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    TimingInterceptor(MeterRegistry registry, String metricName, String beanTag, String beanName) {
+        this.registry = registry;
+        this.metricName = metricName;
+        this.beanTag = beanTag;
+        this.beanName = beanName;
+    }
+
+    @Override
+    public Object invoke(MethodInvocation invocation) throws Throwable {
+        Method method = invocation.getMethod();
+        long start = System.nanoTime();
+        try {
+            Object result = invocation.proceed();
+            timers.computeIfAbsent(method, m -> timer(m, NO_EXCEPTION))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (Throwable e) {
+            timer(method, e.getClass().getSimpleName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    private Timer timer(Method method, String exception) {
+        return Timer.builder(metricName)
+                .tag(beanTag, beanName)
+                .tag("method", method.getName())
+                .tag("exception", exception)
+                .publishPercentiles(MetricNames.PERCENTILES)
+                .register(registry);
+    }
+}
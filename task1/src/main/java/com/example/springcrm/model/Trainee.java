@@ -1,10 +1,14 @@
 package com.example.springcrm.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.time.Instant;
 import java.util.Date;
 import java.util.Objects;
 
-public class Trainee extends User implements Cloneable {
-    private Date dateOfBirth;
+public class Trainee extends User {
+    //Kept as an Instant, Date getters and setters copy, so callers never share a mutable Date with the trainee.
+    private Instant dateOfBirth;
     private String address;
     private String userId;
 
@@ -19,17 +23,31 @@ public class Trainee extends User implements Cloneable {
                    String address,
                    String userId) {
         super(firstName, lastName, username, password, isActive);
-        this.dateOfBirth = dateOfBirth;
+        this.dateOfBirth = dateOfBirth == null ? null : dateOfBirth.toInstant();
         this.address = address;
         this.userId = userId;
     }
 
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
     public Date getDateOfBirth() {
-        return dateOfBirth;
+        return dateOfBirth == null ? null : Date.from(dateOfBirth);
     }
 
     public void setDateOfBirth(Date dateOfBirth) {
-        this.dateOfBirth = dateOfBirth;
+        checkMutable();
+        this.dateOfBirth = dateOfBirth == null ? null : dateOfBirth.toInstant();
+    }
+
+    @JsonIgnore
+    public Instant getDateOfBirthInstant() {
+        return dateOfBirth;
     }
 
     public String getAddress() {
@@ -37,6 +55,7 @@ public class Trainee extends User implements Cloneable {
     }
 
     public void setAddress(String address) {
+        checkMutable();
         this.address = address;
     }
 
@@ -45,16 +64,75 @@ public class Trainee extends User implements Cloneable {
     }
 
     public void setUserId(String userId) {
+        checkMutable();
         this.userId = userId;
     }
 
+    @Override
+    public Trainee withFirstName(String firstName) {
+        return (Trainee) super.withFirstName(firstName);
+    }
+
+    @Override
+    public Trainee withLastName(String lastName) {
+        return (Trainee) super.withLastName(lastName);
+    }
+
+    @Override
+    public Trainee withUsername(String username) {
+        return (Trainee) super.withUsername(username);
+    }
+
+    @Override
+    public Trainee withPassword(String password) {
+        return (Trainee) super.withPassword(password);
+    }
+
+    @Override
+    public Trainee withActive(boolean active) {
+        return (Trainee) super.withActive(active);
+    }
+
+    @Override
+    public Trainee withVersion(long version) {
+        return (Trainee) super.withVersion(version);
+    }
+
+    public Trainee withDateOfBirth(Instant dateOfBirth) {
+        Trainee copy = clone();
+        copy.dateOfBirth = dateOfBirth;
+        return copy.freeze();
+    }
+
+    public Trainee withAddress(String address) {
+        Trainee copy = clone();
+        copy.address = address;
+        return copy.freeze();
+    }
+
+    public Trainee withUserId(String userId) {
+        Trainee copy = clone();
+        copy.userId = userId;
+        return copy.freeze();
+    }
+
+    @Override
+    public Trainee toImmutable() {
+        return (Trainee) super.toImmutable();
+    }
+
+    @Override
+    Trainee freeze() {
+        return (Trainee) super.freeze();
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Trainee trainee = (Trainee) o;
         return super.equals(o)
-                && this.getDateOfBirth().equals(trainee.getDateOfBirth())
+                && this.dateOfBirth.equals(trainee.dateOfBirth)
                 && this.getAddress().equals(trainee.getAddress())
                 && this.getUserId().equals(trainee.getUserId());
     }
@@ -71,12 +149,50 @@ public class Trainee extends User implements Cloneable {
 
     @Override
     public Trainee clone() {
-        try {
-            return (Trainee) super.clone();
-        } catch (CloneNotSupportedException e) {
-            throw new RuntimeException(e);
-        }
+        return (Trainee) super.clone();
     }
 
+    public static final class Builder extends User.Builder<Trainee, Builder> {
+        private Instant dateOfBirth;
+        private String address;
+        private String userId;
 
+        private Builder() {
+        }
+
+        private Builder(Trainee trainee) {
+            super(trainee);
+            this.dateOfBirth = trainee.dateOfBirth;
+            this.address = trainee.address;
+            this.userId = trainee.userId;
+        }
+
+        public Builder dateOfBirth(Instant dateOfBirth) {
+            this.dateOfBirth = dateOfBirth;
+            return this;
+        }
+
+        public Builder address(String address) {
+            this.address = address;
+            return this;
+        }
+
+        public Builder userId(String userId) {
+            this.userId = userId;
+            return this;
+        }
+
+        @Override
+        public Trainee build() {
+            Trainee trainee = new Trainee(firstName, lastName, username, password, active, null, address, userId);
+            trainee.dateOfBirth = dateOfBirth;
+            trainee.setVersion(version);
+            return trainee.freeze();
+        }
+
+        @Override
+        Builder self() {
+            return this;
+        }
+    }
 }
@@ -2,7 +2,7 @@ package com.example.springcrm.model;
 
 import java.util.Objects;
 
-public class Trainer extends User implements Cloneable {
+public class Trainer extends User {
     private String specialization;
     private String userId;
 
@@ -21,11 +21,20 @@ public class Trainer extends User implements Cloneable {
         this.userId = userId;
     }
 
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
     public String getSpecialization() {
         return specialization;
     }
 
     public void setSpecialization(String specialization) {
+        checkMutable();
         this.specialization = specialization;
     }
 
@@ -34,9 +43,62 @@ public class Trainer extends User implements Cloneable {
     }
 
     public void setUserId(String userId) {
+        checkMutable();
         this.userId = userId;
     }
 
+    @Override
+    public Trainer withFirstName(String firstName) {
+        return (Trainer) super.withFirstName(firstName);
+    }
+
+    @Override
+    public Trainer withLastName(String lastName) {
+        return (Trainer) super.withLastName(lastName);
+    }
+
+    @Override
+    public Trainer withUsername(String username) {
+        return (Trainer) super.withUsername(username);
+    }
+
+    @Override
+    public Trainer withPassword(String password) {
+        return (Trainer) super.withPassword(password);
+    }
+
+    @Override
+    public Trainer withActive(boolean active) {
+        return (Trainer) super.withActive(active);
+    }
+
+    @Override
+    public Trainer withVersion(long version) {
+        return (Trainer) super.withVersion(version);
+    }
+
+    public Trainer withSpecialization(String specialization) {
+        Trainer copy = clone();
+        copy.specialization = specialization;
+        return copy.freeze();
+    }
+
+    public Trainer withUserId(String userId) {
+        Trainer copy = clone();
+        copy.userId = userId;
+        return copy.freeze();
+    }
+
+    @Override
+    public Trainer toImmutable() {
+        return (Trainer) super.toImmutable();
+    }
+
+    @Override
+    Trainer freeze() {
+        return (Trainer) super.freeze();
+    }
+
     @Override
     public boolean equals(Object obj) {
         return super.equals(obj)
@@ -57,10 +119,42 @@ public class Trainer extends User implements Cloneable {
 
     @Override
     public Trainer clone()  {
-        try {
-            return (Trainer) super.clone();
-        } catch (CloneNotSupportedException e) {
-            throw new RuntimeException(e);
+        return (Trainer) super.clone();
+    }
+
+    public static final class Builder extends User.Builder<Trainer, Builder> {
+        private String specialization;
+        private String userId;
+
+        private Builder() {
+        }
+
+        private Builder(Trainer trainer) {
+            super(trainer);
+            this.specialization = trainer.specialization;
+            this.userId = trainer.userId;
+        }
+
+        public Builder specialization(String specialization) {
+            this.specialization = specialization;
+            return this;
+        }
+
+        public Builder userId(String userId) {
+            this.userId = userId;
+            return this;
+        }
+
+        @Override
+        public Trainer build() {
+            Trainer trainer = new Trainer(firstName, lastName, username, password, active, specialization, userId);
+            trainer.setVersion(version);
+            return trainer.freeze();
+        }
+
+        @Override
+        Builder self() {
+            return this;
         }
     }
 }
@@ -1,16 +1,25 @@
 package com.example.springcrm.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 import java.util.Objects;
 
+//Mutable unless it comes from the builder, a with* method or toImmutable().
+//Immutable instances can be stored and shared without copying, their setters throw IllegalStateException.
 public class Training implements Cloneable {
     private String traineeId;
     private String trainerId;
     private String trainerName;
     private TrainingType trainingType;
-    private Date trainingDate;
+    //Date getter and setter copy, so callers never share a mutable Date with the training.
+    private Instant trainingDate;
     private Duration trainingDuration;
+    private boolean immutable;
+    //Derived from date, trainee and trainer, reset by their setters.
+    private transient TrainingKey key;
 
     public Training() {}
 
@@ -24,13 +33,33 @@ public class Training implements Cloneable {
         this.trainerId = trainerId;
         this.trainerName = trainerName;
         this.trainingType = trainingType;
-        this.trainingDate = trainingDate;
+        this.trainingDate = trainingDate == null ? null : trainingDate.toInstant();
         this.trainingDuration = trainingDuration;
     }
 
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public Builder toBuilder() {
+        return new Builder(this);
+    }
+
     //This is a combined id used to store in DB.
+    @JsonIgnore
     public String getId() {
-        return trainingDate.toString() + " " + traineeId + " " + trainerId;
+        return getKey().toString();
+    }
+
+    //Binary form of the id, cached and reset by the setters it depends on.
+    @JsonIgnore
+    public TrainingKey getKey() {
+        TrainingKey result = key;
+        if (result == null) {
+            result = new TrainingKey(trainingDate.toEpochMilli(), traineeId, trainerId);
+            key = result;
+        }
+        return result;
     }
 
     public String getTraineeId() {
@@ -38,7 +67,9 @@ public class Training implements Cloneable {
     }
 
     public void setTraineeId(String traineeId) {
+        checkMutable();
         this.traineeId = traineeId;
+        this.key = null;
     }
 
     public String getTrainerId() {
@@ -46,7 +77,9 @@ public class Training implements Cloneable {
     }
 
     public void setTrainerId(String trainerId) {
+        checkMutable();
         this.trainerId = trainerId;
+        this.key = null;
     }
 
     public String getTrainerName() {
@@ -54,6 +87,7 @@ public class Training implements Cloneable {
     }
 
     public void setTrainerName(String trainerName) {
+        checkMutable();
         this.trainerName = trainerName;
     }
 
@@ -62,15 +96,23 @@ public class Training implements Cloneable {
     }
 
     public void setTrainingType(TrainingType trainingType) {
+        checkMutable();
         this.trainingType = trainingType;
     }
 
     public Date getTrainingDate() {
-        return trainingDate;
+        return trainingDate == null ? null : Date.from(trainingDate);
     }
 
     public void setTrainingDate(Date trainingDate) {
-        this.trainingDate = trainingDate;
+        checkMutable();
+        this.trainingDate = trainingDate == null ? null : trainingDate.toInstant();
+        this.key = null;
+    }
+
+    @JsonIgnore
+    public Instant getTrainingInstant() {
+        return trainingDate;
     }
 
     public Duration getTrainingDuration() {
@@ -78,9 +120,71 @@ public class Training implements Cloneable {
     }
 
     public void setTrainingDuration(Duration trainingDuration) {
+        checkMutable();
         this.trainingDuration = trainingDuration;
     }
 
+    @JsonIgnore
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    public Training withTraineeId(String traineeId) {
+        Training copy = clone();
+        copy.traineeId = traineeId;
+        copy.key = null;
+        return copy.freeze();
+    }
+
+    public Training withTrainerId(String trainerId) {
+        Training copy = clone();
+        copy.trainerId = trainerId;
+        copy.key = null;
+        return copy.freeze();
+    }
+
+    public Training withTrainerName(String trainerName) {
+        Training copy = clone();
+        copy.trainerName = trainerName;
+        return copy.freeze();
+    }
+
+    public Training withTrainingType(TrainingType trainingType) {
+        Training copy = clone();
+        copy.trainingType = trainingType;
+        return copy.freeze();
+    }
+
+    public Training withTrainingDate(Instant trainingDate) {
+        Training copy = clone();
+        copy.trainingDate = trainingDate;
+        copy.key = null;
+        return copy.freeze();
+    }
+
+    public Training withTrainingDuration(Duration trainingDuration) {
+        Training copy = clone();
+        copy.trainingDuration = trainingDuration;
+        return copy.freeze();
+    }
+
+    //This instance if it is immutable already, an immutable copy otherwise.
+    public Training toImmutable() {
+        return immutable ? this : clone().freeze();
+    }
+
+    //Makes this instance immutable in place, for the builders that own a freshly built instance.
+    Training freeze() {
+        immutable = true;
+        return this;
+    }
+
+    private void checkMutable() {
+        if (immutable) {
+            throw new IllegalStateException("Training " + getId() + " is immutable, use its with* methods to change it");
+        }
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
@@ -106,12 +210,73 @@ public class Training implements Cloneable {
         );
     }
 
+    //Copies are always mutable.
     @Override
     public Training clone() {
         try {
-            return (Training) super.clone();
+            Training copy = (Training) super.clone();
+            copy.immutable = false;
+            return copy;
         } catch (CloneNotSupportedException e) {
             throw new RuntimeException(e);
         }
     }
+
+    //Builds immutable trainings.
+    public static final class Builder {
+        private String traineeId;
+        private String trainerId;
+        private String trainerName;
+        private TrainingType trainingType;
+        private Instant trainingDate;
+        private Duration trainingDuration;
+
+        private Builder() {
+        }
+
+        private Builder(Training training) {
+            this.traineeId = training.traineeId;
+            this.trainerId = training.trainerId;
+            this.trainerName = training.trainerName;
+            this.trainingType = training.trainingType;
+            this.trainingDate = training.trainingDate;
+            this.trainingDuration = training.trainingDuration;
+        }
+
+        public Builder traineeId(String traineeId) {
+            this.traineeId = traineeId;
+            return this;
+        }
+
+        public Builder trainerId(String trainerId) {
+            this.trainerId = trainerId;
+            return this;
+        }
+
+        public Builder trainerName(String trainerName) {
+            this.trainerName = trainerName;
+            return this;
+        }
+
+        public Builder trainingType(TrainingType trainingType) {
+            this.trainingType = trainingType;
+            return this;
+        }
+
+        public Builder trainingDate(Instant trainingDate) {
+            this.trainingDate = trainingDate;
+            return this;
+        }
+
+        public Builder trainingDuration(Duration trainingDuration) {
+            this.trainingDuration = trainingDuration;
+            return this;
+        }
+
+        public Training build() {
+            Training training = new Training(traineeId, trainerId, trainerName, trainingType, null, trainingDuration);
+            training.trainingDate = trainingDate;
+            return training.freeze();
+        }
+    }
 }
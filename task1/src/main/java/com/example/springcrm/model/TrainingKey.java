@@ -0,0 +1,103 @@
+package com.example.springcrm.model;
+
+import java.util.Objects;
+
+//Storage key of a training: its start time in epoch millis plus trainee and trainer ids.
+//Ids are interned and the hash is computed once, so keys are cheap to compare and hash.
+public final class TrainingKey implements Comparable<TrainingKey> {
+    private static final String SEPARATOR = " ";
+
+    private final long trainingTime;
+    private final String traineeId;
+    private final String trainerId;
+    private final int hash;
+
+    public TrainingKey(long trainingTime, String traineeId, String trainerId) {
+        this.trainingTime = trainingTime;
+        this.traineeId = traineeId == null ? null : traineeId.intern();
+        this.trainerId = trainerId == null ? null : trainerId.intern();
+        this.hash = Objects.hash(trainingTime, this.traineeId, this.trainerId);
+    }
+
+    //Smallest possible key of the given time, used as a bound for date range queries.
+    public static TrainingKey first(long trainingTime) {
+        return new TrainingKey(trainingTime, null, null);
+    }
+
+    //Reverse of toString(), used to look trainings up by their string id.
+    public static TrainingKey parse(String id) throws IllegalArgumentException {
+        int traineeStart = id.indexOf(SEPARATOR) + 1;
+        int trainerStart = id.indexOf(SEPARATOR, traineeStart) + 1;
+        if (traineeStart == 0 || trainerStart == 0) {
+            throw new IllegalArgumentException("Invalid training id: " + id);
+        }
+
+        try {
+            return new TrainingKey(
+                    Long.parseLong(id, 0, traineeStart - 1, 10),
+                    id.substring(traineeStart, trainerStart - 1),
+                    id.substring(trainerStart));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid training id: " + id, e);
+        }
+    }
+
+    public long getTrainingTime() {
+        return trainingTime;
+    }
+
+    public String getTraineeId() {
+        return traineeId;
+    }
+
+    public String getTrainerId() {
+        return trainerId;
+    }
+
+    @Override
+    public int compareTo(TrainingKey other) {
+        int result = Long.compare(trainingTime, other.trainingTime);
+        if (result == 0) {
+            result = compareIds(traineeId, other.traineeId);
+        }
+        if (result == 0) {
+            result = compareIds(trainerId, other.trainerId);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TrainingKey that = (TrainingKey) o;
+        return hash == that.hash
+                && trainingTime == that.trainingTime
+                && Objects.equals(traineeId, that.traineeId)
+                && Objects.equals(trainerId, that.trainerId);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return trainingTime + SEPARATOR + traineeId + SEPARATOR + trainerId;
+    }
+
+    //Null goes first, so first(time) is below every real key of that time.
+    private static int compareIds(String first, String second) {
+        if (first == second) {
+            return 0;
+        }
+        if (first == null) {
+            return -1;
+        }
+        if (second == null) {
+            return 1;
+        }
+        return first.compareTo(second);
+    }
+}
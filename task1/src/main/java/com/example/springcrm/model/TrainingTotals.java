@@ -0,0 +1,43 @@
+package com.example.springcrm.model;
+
+import java.time.Duration;
+import java.util.Objects;
+
+//Number of trainings and their summed duration for one trainer, trainee or type.
+public class TrainingTotals {
+    public static final TrainingTotals EMPTY = new TrainingTotals(0, Duration.ZERO);
+
+    private final long count;
+    private final Duration totalDuration;
+
+    public TrainingTotals(long count, Duration totalDuration) {
+        this.count = count;
+        this.totalDuration = totalDuration;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public Duration getTotalDuration() {
+        return totalDuration;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        TrainingTotals that = (TrainingTotals) o;
+        return count == that.count && totalDuration.equals(that.totalDuration);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(count, totalDuration);
+    }
+
+    @Override
+    public String toString() {
+        return count + " trainings, " + totalDuration;
+    }
+}
@@ -1,32 +1,106 @@
 package com.example.springcrm.model;
 
-public class TrainingType {
-    private String trainingTypeName;
+import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonProperty;
 
-    public TrainingType() {}
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
-    public TrainingType(String trainingTypeName) {
+//There are only a handful of types, so every name has exactly one instance with a small code.
+//Instances are canonical: equality is identity and the code is the hash.
+//The known types are registered up front; any other has to be registered explicitly, names from clients never add one.
+public final class TrainingType {
+    private static final Map<String, TrainingType> byName = new ConcurrentHashMap<>();
+    private static volatile TrainingType[] byCode = new TrainingType[16];
+
+    static {
+        for (String known : new String[]{"Fitness", "Yoga", "Zumba", "Stretching", "Resistance",
+                "Pilates", "Weightlifting", "Boxing"}) {
+            register(known);
+        }
+    }
+
+    private final String trainingTypeName;
+    private final int code;
+
+    private TrainingType(String trainingTypeName, int code) {
         this.trainingTypeName = trainingTypeName;
+        this.code = code;
+    }
+
+    //Unknown names are rejected, so JSON naming a type nobody registered fails to deserialize.
+    @JsonCreator
+    public static TrainingType of(@JsonProperty("trainingTypeName") @JsonAlias("name") String trainingTypeName) {
+        if (trainingTypeName == null) {
+            throw new IllegalArgumentException("Training type name is required");
+        }
+        TrainingType trainingType = byName.get(trainingTypeName);
+        if (trainingType == null) {
+            throw new IllegalArgumentException("Unknown training type: " + trainingTypeName);
+        }
+        return trainingType;
+    }
+
+    //Returns null for names that were never registered, without registering them.
+    public static TrainingType find(String trainingTypeName) {
+        return trainingTypeName == null ? null : byName.get(trainingTypeName);
+    }
+
+    public static TrainingType ofCode(int code) {
+        TrainingType[] types = byCode;
+        if (code < 0 || code >= types.length || types[code] == null) {
+            throw new IllegalArgumentException("Unknown training type code: " + code);
+        }
+        return types[code];
     }
 
     public String getTrainingTypeName() {
         return trainingTypeName;
     }
 
-    public void setTrainingTypeName(String trainingTypeName) {
-        this.trainingTypeName = trainingTypeName;
+    @JsonIgnore
+    public int getCode() {
+        return code;
     }
 
     @Override
     public boolean equals(Object o) {
-        if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        TrainingType that = (TrainingType) o;
-        return trainingTypeName.equals(that.trainingTypeName);
+        return this == o;
     }
 
     @Override
     public int hashCode() {
-        return trainingTypeName.hashCode();
+        return code;
+    }
+
+    @Override
+    public String toString() {
+        return trainingTypeName;
+    }
+
+    //Adds a type beyond the known ones, registering an existing name returns its instance.
+    //Has to run before storages load, so seeds, logs and snapshots naming the type can be read back.
+    public static synchronized TrainingType register(String trainingTypeName) {
+        if (trainingTypeName == null) {
+            throw new IllegalArgumentException("Training type name is required");
+        }
+        TrainingType trainingType = byName.get(trainingTypeName);
+        if (trainingType != null) {
+            return trainingType;
+        }
+
+        int code = byName.size();
+        TrainingType[] types = byCode;
+        if (code == types.length) {
+            types = Arrays.copyOf(types, types.length * 2);
+        }
+        trainingType = new TrainingType(trainingTypeName, code);
+        types[code] = trainingType;
+        byCode = types;
+        byName.put(trainingTypeName, trainingType);
+        return trainingType;
     }
 }
@@ -1,13 +1,20 @@
 package com.example.springcrm.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.Objects;
 
-public class User {
+//Users are mutable unless they come from a builder, a with* method or toImmutable().
+//Immutable instances can be stored and shared without copying, their setters throw IllegalStateException.
+public class User implements Cloneable {
     private String firstName;
     private String lastName;
     private String username;
     private String password;
     private boolean isActive;
+    //Bumped by every successful update in storage, an update has to carry the version it was based on.
+    private long version;
+    private boolean immutable;
 
     public User() {
     }
@@ -29,6 +36,7 @@ public class User {
     }
 
     public void setFirstName(String firstName) {
+        checkMutable();
         this.firstName = firstName;
     }
 
@@ -37,6 +45,7 @@ public class User {
     }
 
     public void setLastName(String lastName) {
+        checkMutable();
         this.lastName = lastName;
     }
 
@@ -45,6 +54,7 @@ public class User {
     }
 
     public void setUsername(String username) {
+        checkMutable();
         this.username = username;
     }
 
@@ -53,6 +63,7 @@ public class User {
     }
 
     public void setPassword(String password) {
+        checkMutable();
         this.password = password;
     }
 
@@ -61,9 +72,146 @@ public class User {
     }
 
     public void setActive(boolean active) {
+        checkMutable();
         isActive = active;
     }
 
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        checkMutable();
+        this.version = version;
+    }
+
+    @JsonIgnore
+    public boolean isImmutable() {
+        return immutable;
+    }
+
+    public User withFirstName(String firstName) {
+        User copy = clone();
+        copy.firstName = firstName;
+        return copy.freeze();
+    }
+
+    public User withLastName(String lastName) {
+        User copy = clone();
+        copy.lastName = lastName;
+        return copy.freeze();
+    }
+
+    public User withUsername(String username) {
+        User copy = clone();
+        copy.username = username;
+        return copy.freeze();
+    }
+
+    public User withPassword(String password) {
+        User copy = clone();
+        copy.password = password;
+        return copy.freeze();
+    }
+
+    public User withActive(boolean active) {
+        User copy = clone();
+        copy.isActive = active;
+        return copy.freeze();
+    }
+
+    public User withVersion(long version) {
+        User copy = clone();
+        copy.version = version;
+        return copy.freeze();
+    }
+
+    //This instance if it is immutable already, an immutable copy otherwise.
+    public User toImmutable() {
+        return immutable ? this : clone().freeze();
+    }
+
+    //Makes this instance immutable in place, for the builders that own a freshly built instance.
+    User freeze() {
+        immutable = true;
+        return this;
+    }
+
+    //Copies are always mutable.
+    @Override
+    public User clone() {
+        try {
+            User copy = (User) super.clone();
+            copy.immutable = false;
+            return copy;
+        } catch (CloneNotSupportedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    void checkMutable() {
+        if (immutable) {
+            throw new IllegalStateException(getClass().getSimpleName() + " " + username
+                    + " is immutable, use its with* methods to change it");
+        }
+    }
+
+    //Shared part of the Trainee and Trainer builders, build() returns an immutable instance.
+    public abstract static class Builder<T extends User, B extends Builder<T, B>> {
+        String firstName;
+        String lastName;
+        String username;
+        String password;
+        boolean active;
+        long version;
+
+        Builder() {
+        }
+
+        Builder(User user) {
+            this.firstName = user.firstName;
+            this.lastName = user.lastName;
+            this.username = user.username;
+            this.password = user.password;
+            this.active = user.isActive;
+            this.version = user.version;
+        }
+
+        public B firstName(String firstName) {
+            this.firstName = firstName;
+            return self();
+        }
+
+        public B lastName(String lastName) {
+            this.lastName = lastName;
+            return self();
+        }
+
+        public B username(String username) {
+            this.username = username;
+            return self();
+        }
+
+        public B password(String password) {
+            this.password = password;
+            return self();
+        }
+
+        public B active(boolean active) {
+            this.active = active;
+            return self();
+        }
+
+        public B version(long version) {
+            this.version = version;
+            return self();
+        }
+
+        public abstract T build();
+
+        abstract B self();
+    }
+
     public static boolean userNameHasChanged(User oldVersion, User newVersion) {
         return (!oldVersion.getFirstName().equals(newVersion.getFirstName()))
                 || (!oldVersion.getLastName().equals(newVersion.getLastName()));
@@ -74,6 +222,7 @@ public class User {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         User user = (User) o;
+        //Version is storage bookkeeping, like the immutable flag it is not part of the value.
         return Objects.equals(firstName, user.firstName)
                 && Objects.equals(lastName, user.lastName)
                 && Objects.equals(username, user.username)
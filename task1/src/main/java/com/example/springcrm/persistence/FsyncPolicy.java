@@ -0,0 +1,11 @@
+package com.example.springcrm.persistence;
+
+//When the write-ahead log forces written records to the disk.
+public enum FsyncPolicy {
+    //Every group commit is forced before writers are released.
+    ALWAYS,
+    //Writers are released after the write, force happens at most once per interval.
+    INTERVAL,
+    //Left to the operating system.
+    NEVER
+}
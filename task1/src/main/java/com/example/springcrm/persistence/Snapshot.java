@@ -0,0 +1,29 @@
+package com.example.springcrm.persistence;
+
+import java.util.List;
+
+//Point-in-time contents of one storage together with what is needed to continue from it.
+public class Snapshot<T> {
+    private final List<T> values;
+    private final long logPosition;
+    private final long idHighWaterMark;
+
+    public Snapshot(List<T> values, long logPosition, long idHighWaterMark) {
+        this.values = values;
+        this.logPosition = logPosition;
+        this.idHighWaterMark = idHighWaterMark;
+    }
+
+    public List<T> getValues() {
+        return values;
+    }
+
+    //Write-ahead log position the values correspond to, replay continues from here.
+    public long getLogPosition() {
+        return logPosition;
+    }
+
+    public long getIdHighWaterMark() {
+        return idHighWaterMark;
+    }
+}
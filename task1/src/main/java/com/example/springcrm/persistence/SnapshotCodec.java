@@ -0,0 +1,82 @@
+package com.example.springcrm.persistence;
+
+import com.example.springcrm.model.User;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
+//Fixed field order binary form of one entity. Changing the order requires a new snapshot format version.
+public abstract class SnapshotCodec<T> {
+    private static final long NO_DATE = Long.MIN_VALUE;
+
+    public abstract void write(DataOutput out, T value) throws IOException;
+
+    public abstract T read(ByteBuffer in);
+
+    protected static void writeUser(DataOutput out, User user) throws IOException {
+        writeString(out, user.getFirstName());
+        writeString(out, user.getLastName());
+        writeString(out, user.getUsername());
+        writeString(out, user.getPassword());
+        out.writeBoolean(user.isActive());
+        out.writeLong(user.getVersion());
+    }
+
+    protected static <B extends User.Builder<?, B>> B readUser(ByteBuffer in, B builder) {
+        return builder.firstName(readString(in))
+                .lastName(readString(in))
+                .username(readString(in))
+                .password(readString(in))
+                .active(in.get() != 0)
+                .version(in.getLong());
+    }
+
+    protected static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    protected static String readString(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    protected static void writeInstant(DataOutput out, Instant value) throws IOException {
+        out.writeLong(value == null ? NO_DATE : value.toEpochMilli());
+    }
+
+    protected static Instant readInstant(ByteBuffer in) {
+        long time = in.getLong();
+        return time == NO_DATE ? null : Instant.ofEpochMilli(time);
+    }
+
+    protected static void writeDuration(DataOutput out, Duration value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value.getSeconds());
+            out.writeInt(value.getNano());
+        }
+    }
+
+    protected static Duration readDuration(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        long seconds = in.getLong();
+        return Duration.ofSeconds(seconds, in.getInt());
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.springcrm.persistence;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+//Layout: [magic][format version][log position][id high-water mark][count][records...][crc32 of all before].
+//Written to a temporary file and moved over the old one, so a crash leaves either the old or the new snapshot.
+public final class SnapshotFile {
+    private static final int MAGIC = 0x53434d53;
+    //2 added user versions, files in older formats are rejected.
+    private static final int FORMAT_VERSION = 2;
+    private static final int HEADER_SIZE = Integer.BYTES * 3 + Long.BYTES * 2;
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private SnapshotFile() {
+    }
+
+    public static <T> void write(Path file, SnapshotCodec<T> codec, Snapshot<T> snapshot) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temporary.toFile())) {
+            BufferedOutputStream buffered = new BufferedOutputStream(fileOut, BUFFER_SIZE);
+            CheckedOutputStream checked = new CheckedOutputStream(buffered, new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(snapshot.getLogPosition());
+            out.writeLong(snapshot.getIdHighWaterMark());
+            out.writeInt(snapshot.getValues().size());
+            for (T value : snapshot.getValues()) {
+                codec.write(out, value);
+            }
+            out.flush();
+
+            buffered.write(ByteBuffer.allocate(Integer.BYTES).putInt((int) checked.getChecksum().getValue()).array());
+            buffered.flush();
+            fileOut.getFD().sync();
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    //Mapped instead of streamed, records are decoded straight from the page cache.
+    public static <T> Snapshot<T> read(Path file, SnapshotCodec<T> codec) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + Integer.BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Unexpected snapshot size " + size + ": " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            int checksumOffset = (int) size - Integer.BYTES;
+
+            ByteBuffer body = buffer.duplicate();
+            body.limit(checksumOffset);
+            CRC32 crc = new CRC32();
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(checksumOffset)) {
+                throw new IOException("Snapshot checksum mismatch: " + file);
+            }
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            int formatVersion = buffer.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported snapshot format version " + formatVersion + ": " + file);
+            }
+            long logPosition = buffer.getLong();
+            long idHighWaterMark = buffer.getLong();
+            int count = buffer.getInt();
+
+            List<T> values = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                values.add(codec.read(buffer));
+            }
+            return new Snapshot<>(values, logPosition, idHighWaterMark);
+        }
+    }
+}
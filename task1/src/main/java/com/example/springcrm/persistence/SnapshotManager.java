@@ -0,0 +1,102 @@
+package com.example.springcrm.persistence;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+//Periodically runs snapshot tasks registered by storages. Snapshots are off while storage.snapshot.directory is empty.
+@Component
+public class SnapshotManager {
+    private static Logger logger = LoggerFactory.getLogger(SnapshotManager.class);
+
+    private final String directory;
+    private final Map<String, Runnable> tasks = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public SnapshotManager(@Value("${storage.snapshot.directory:}") String directory,
+                           @Value("${storage.snapshot.interval-seconds:300}") long intervalSeconds) {
+        this.directory = directory.trim();
+        if (isEnabled()) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "storage-snapshot");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::snapshotAll, intervalSeconds, intervalSeconds, TimeUnit.SECONDS);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return !directory.isEmpty();
+    }
+
+    public void register(String name, Runnable snapshotTask) {
+        tasks.put(name, snapshotTask);
+    }
+
+    public void snapshotAll() {
+        tasks.forEach((name, task) -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                logger.error("Failed to take snapshot of {}", name, e);
+            }
+        });
+    }
+
+    //Returns null when there is no snapshot yet.
+    public <T> Snapshot<T> load(String name, SnapshotCodec<T> codec) {
+        if (!isEnabled()) {
+            return null;
+        }
+        Path file = getFile(name);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            return SnapshotFile.read(file, codec);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load snapshot " + file, e);
+        }
+    }
+
+    public <T> void write(String name, SnapshotCodec<T> codec, Snapshot<T> snapshot) {
+        Path file = getFile(name);
+        try {
+            Files.createDirectories(file.getParent());
+            long start = System.nanoTime();
+            SnapshotFile.write(file, codec, snapshot);
+            logger.info("Wrote snapshot of {} with {} values in {} ms", name, snapshot.getValues().size(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to write snapshot " + file, e);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private Path getFile(String name) {
+        return Path.of(directory, name + ".snapshot");
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.springcrm.persistence;
+
+import com.example.springcrm.model.Trainee;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class TraineeSnapshotCodec extends SnapshotCodec<Trainee> {
+
+    @Override
+    public void write(DataOutput out, Trainee trainee) throws IOException {
+        writeUser(out, trainee);
+        writeInstant(out, trainee.getDateOfBirthInstant());
+        writeString(out, trainee.getAddress());
+        writeString(out, trainee.getUserId());
+    }
+
+    @Override
+    public Trainee read(ByteBuffer in) {
+        return readUser(in, Trainee.builder())
+                .dateOfBirth(readInstant(in))
+                .address(readString(in))
+                .userId(readString(in))
+                .build();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.springcrm.persistence;
+
+import com.example.springcrm.model.Trainer;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class TrainerSnapshotCodec extends SnapshotCodec<Trainer> {
+
+    @Override
+    public void write(DataOutput out, Trainer trainer) throws IOException {
+        writeUser(out, trainer);
+        writeString(out, trainer.getSpecialization());
+        writeString(out, trainer.getUserId());
+    }
+
+    @Override
+    public Trainer read(ByteBuffer in) {
+        return readUser(in, Trainer.builder())
+                .specialization(readString(in))
+                .userId(readString(in))
+                .build();
+    }
+}
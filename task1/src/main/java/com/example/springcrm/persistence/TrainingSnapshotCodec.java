@@ -0,0 +1,36 @@
+package com.example.springcrm.persistence;
+
+import com.example.springcrm.model.Training;
+import com.example.springcrm.model.TrainingType;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+public class TrainingSnapshotCodec extends SnapshotCodec<Training> {
+
+    @Override
+    public void write(DataOutput out, Training training) throws IOException {
+        writeString(out, training.getTraineeId());
+        writeString(out, training.getTrainerId());
+        writeString(out, training.getTrainerName());
+        TrainingType trainingType = training.getTrainingType();
+        writeString(out, trainingType == null ? null : trainingType.getTrainingTypeName());
+        writeInstant(out, training.getTrainingInstant());
+        writeDuration(out, training.getTrainingDuration());
+    }
+
+    @Override
+    public Training read(ByteBuffer in) {
+        Training.Builder training = Training.builder()
+                .traineeId(readString(in))
+                .trainerId(readString(in))
+                .trainerName(readString(in));
+        String trainingTypeName = readString(in);
+        return training
+                .trainingType(trainingTypeName == null ? null : TrainingType.of(trainingTypeName))
+                .trainingDate(readInstant(in))
+                .trainingDuration(readDuration(in))
+                .build();
+    }
+}
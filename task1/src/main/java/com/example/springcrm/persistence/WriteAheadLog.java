@@ -0,0 +1,423 @@
+package com.example.springcrm.persistence;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+//Append-only log of storage changes. Record: [length][operation][json payload][crc32 of operation and payload].
+//Appends are queued and written by one thread in groups, so concurrent writers share a single write and fsync.
+//Positions are logical: the file starts with the position of its first record, and once a snapshot covers the
+//records before some position they are cut off, so the file only holds the changes since the last snapshot.
+public class WriteAheadLog<T> implements Closeable {
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final byte CLEAR = 3;
+
+    private static final int MAX_GROUP_SIZE = 1024;
+    private static final int MAX_RECORD_LENGTH = 64 * 1024 * 1024;
+    private static final long IDLE_POLL_MILLIS = 100;
+    private static final int HEADER_SIZE = Long.BYTES;
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteAheadLog.class);
+
+    private final Path file;
+    private final Class<T> type;
+    private final ObjectMapper objectMapper;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    //Replaced when the log is compacted, every use of it holds channelLock.
+    private FileChannel channel;
+    private final ReentrantLock channelLock = new ReentrantLock();
+    //Logical position of the first record in the file.
+    private volatile long basePosition;
+
+    private final BlockingQueue<Record> pending = new LinkedBlockingQueue<>();
+    //Sequence numbers have to be handed out in the queue order.
+    private final Object appendLock = new Object();
+    //Writers wait on a j.u.c. condition rather than a monitor, so waiting virtual threads do not pin their carrier.
+    private final ReentrantLock durableLock = new ReentrantLock();
+    private final Condition durableChanged = durableLock.newCondition();
+    private long lastSequence;
+    private volatile long durableSequence;
+    //Set once when the writer thread dies, appends and waiters fail with it from then on.
+    private volatile Throwable failure;
+    private volatile boolean closed;
+    private long lastForceTime = System.nanoTime();
+    private final Thread writer;
+
+    public WriteAheadLog(Path file,
+                         Class<T> type,
+                         ObjectMapper objectMapper,
+                         FsyncPolicy fsyncPolicy,
+                         long fsyncIntervalMillis) throws IOException {
+        this.file = file;
+        this.type = type;
+        this.objectMapper = objectMapper;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(fsyncIntervalMillis);
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() < HEADER_SIZE) {
+            //New file, or one torn before its first record was written.
+            channel.truncate(0);
+            channel.write(header(0), 0);
+            channel.force(false);
+        } else {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            }
+            this.basePosition = header.getLong(0);
+        }
+        this.channel.position(channel.size());
+
+        this.writer = new Thread(this::writeLoop, "wal-" + file.getFileName());
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    public long replay(Consumer<T> onPut, Consumer<T> onDelete, Runnable onClear) {
+        return replay(0, onPut, onDelete, onClear);
+    }
+
+    //Has to be called before the first append. A torn record at the end (crash during write) is cut off.
+    //Starting position is one returned by position(), records before it are skipped.
+    public long replay(long fromPosition, Consumer<T> onPut, Consumer<T> onDelete, Runnable onClear) {
+        if (fromPosition < basePosition) {
+            logger.warn("{} starts at position {}, changes before it are only in the snapshot that cut them off",
+                    file, basePosition);
+            fromPosition = basePosition;
+        }
+        long validEnd = HEADER_SIZE + fromPosition - basePosition;
+        long replayed = 0;
+
+        channelLock.lock();
+        try (SeekableByteChannel source = Files.newByteChannel(file)) {
+            if (validEnd > source.size()) {
+                logger.warn("{} is shorter than the replay position {}, nothing to replay", file, fromPosition);
+                validEnd = source.size();
+            }
+            source.position(validEnd);
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(source)));
+            while (true) {
+                byte[] body;
+                try {
+                    int length = in.readInt();
+                    if (length < 1 || length > MAX_RECORD_LENGTH) {
+                        break;
+                    }
+                    body = new byte[length];
+                    in.readFully(body);
+                    if (in.readInt() != checksum(body)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+
+                switch (body[0]) {
+                    case PUT:
+                        onPut.accept(objectMapper.readValue(body, 1, body.length - 1, type));
+                        break;
+                    case DELETE:
+                        onDelete.accept(objectMapper.readValue(body, 1, body.length - 1, type));
+                        break;
+                    case CLEAR:
+                        onClear.run();
+                        break;
+                    default:
+                        throw new IOException("Unknown operation " + body[0] + " in " + file);
+                }
+                validEnd += Integer.BYTES + body.length + Integer.BYTES;
+                replayed++;
+            }
+
+            if (validEnd < channel.size()) {
+                logger.warn("Cutting {} bytes of incomplete records off {}", channel.size() - validEnd, file);
+                channel.truncate(validEnd);
+            }
+            channel.position(validEnd);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to replay write-ahead log " + file, e);
+        } finally {
+            channelLock.unlock();
+        }
+        return replayed;
+    }
+
+    public long appendPut(T value) {
+        return append(PUT, serialize(value));
+    }
+
+    public long appendDelete(T value) {
+        return append(DELETE, serialize(value));
+    }
+
+    public long appendClear() {
+        return append(CLEAR, new byte[0]);
+    }
+
+    //End of everything appended so far, once it is written. Callers have to hold off appends meanwhile.
+    public long position() {
+        awaitDurable(lastSequence());
+        channelLock.lock();
+        try {
+            return basePosition + channel.position() - HEADER_SIZE;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read position of write-ahead log " + file, e);
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    //Cuts off the records before the position, once a durable snapshot covers them. Later positions stay valid.
+    //The rest is copied to a new file that replaces the log atomically, a crash leaves either the old or the new one.
+    public void discardBefore(long position) {
+        channelLock.lock();
+        try {
+            long start = HEADER_SIZE + position - basePosition;
+            if (position <= basePosition || start > channel.size()) {
+                return;
+            }
+            Path compacted = file.resolveSibling(file.getFileName() + ".tmp");
+            FileChannel target = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try {
+                target.write(header(position));
+                long end = channel.size();
+                for (long offset = start; offset < end; ) {
+                    offset += channel.transferTo(offset, end - offset, target);
+                }
+                target.force(false);
+                Files.move(compacted, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                target.close();
+                Files.deleteIfExists(compacted);
+                throw e;
+            }
+            FileChannel previous = channel;
+            channel = target;
+            basePosition = position;
+            previous.close();
+            logger.info("Cut {} bytes of changes covered by a snapshot off {}", start - HEADER_SIZE, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to compact write-ahead log " + file, e);
+        } finally {
+            channelLock.unlock();
+        }
+    }
+
+    public long lastSequence() {
+        synchronized (appendLock) {
+            return lastSequence;
+        }
+    }
+
+    //Blocks until the record with this sequence is written (and forced, if the policy says so).
+    public void awaitDurable(long sequence) {
+        if (durableSequence >= sequence) {
+            return;
+        }
+        durableLock.lock();
+        try {
+            while (durableSequence < sequence) {
+                if (failure != null) {
+                    throw failed();
+                }
+                durableChanged.await();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for write-ahead log", e);
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join();
+            channelLock.lock();
+            try {
+                channel.force(false);
+                channel.close();
+            } finally {
+                channelLock.unlock();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to close write-ahead log " + file, e);
+        }
+    }
+
+    private long append(byte operation, byte[] payload) {
+        synchronized (appendLock) {
+            if (closed) {
+                throw new IllegalStateException("Write-ahead log is closed: " + file);
+            }
+            if (failure != null) {
+                throw failed();
+            }
+            long sequence = ++lastSequence;
+            pending.add(new Record(sequence, operation, payload));
+            return sequence;
+        }
+    }
+
+    private byte[] serialize(T value) {
+        try {
+            return objectMapper.writeValueAsBytes(value);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException("Failed to serialize record for " + file, e);
+        }
+    }
+
+    private void writeLoop() {
+        List<Record> group = new ArrayList<>(MAX_GROUP_SIZE);
+        try {
+            while (!closed || !pending.isEmpty()) {
+                long pollNanos = fsyncPolicy == FsyncPolicy.INTERVAL
+                        ? fsyncIntervalNanos
+                        : TimeUnit.MILLISECONDS.toNanos(IDLE_POLL_MILLIS);
+                Record first = pending.poll(pollNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    channelLock.lock();
+                    try {
+                        forceIfDue();
+                    } finally {
+                        channelLock.unlock();
+                    }
+                    continue;
+                }
+
+                group.add(first);
+                pending.drainTo(group, MAX_GROUP_SIZE - 1);
+                channelLock.lock();
+                try {
+                    write(group);
+                } finally {
+                    channelLock.unlock();
+                }
+                markDurable(group.get(group.size() - 1).sequence);
+                group.clear();
+            }
+        } catch (Throwable e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            logger.error("Write-ahead log {} failed", file, e);
+            failure = e;
+            signalDurable();
+        }
+    }
+
+    private RuntimeException failed() {
+        return failure instanceof IOException
+                ? new UncheckedIOException("Write-ahead log failed: " + file, (IOException) failure)
+                : new IllegalStateException("Write-ahead log failed: " + file, failure);
+    }
+
+    private void write(List<Record> group) throws IOException {
+        int size = 0;
+        for (Record record : group) {
+            size += Integer.BYTES + 1 + record.payload.length + Integer.BYTES;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (Record record : group) {
+            crc.reset();
+            crc.update(record.operation);
+            crc.update(record.payload);
+
+            buffer.putInt(1 + record.payload.length);
+            buffer.put(record.operation);
+            buffer.put(record.payload);
+            buffer.putInt((int) crc.getValue());
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+
+        if (fsyncPolicy == FsyncPolicy.ALWAYS) {
+            force();
+        } else {
+            forceIfDue();
+        }
+    }
+
+    private void forceIfDue() throws IOException {
+        if (fsyncPolicy == FsyncPolicy.INTERVAL && System.nanoTime() - lastForceTime >= fsyncIntervalNanos) {
+            force();
+        }
+    }
+
+    private void force() throws IOException {
+        channel.force(false);
+        lastForceTime = System.nanoTime();
+    }
+
+    private void markDurable(long sequence) {
+        durableSequence = sequence;
+        signalDurable();
+    }
+
+    private void signalDurable() {
+        durableLock.lock();
+        try {
+            durableChanged.signalAll();
+        } finally {
+            durableLock.unlock();
+        }
+    }
+
+    private static ByteBuffer header(long basePosition) {
+        return ByteBuffer.allocate(HEADER_SIZE).putLong(0, basePosition);
+    }
+
+    private static int checksum(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return (int) crc.getValue();
+    }
+
+    private static final class Record {
+        private final long sequence;
+        private final byte operation;
+        private final byte[] payload;
+
+        private Record(long sequence, byte operation, byte[] payload) {
+            this.sequence = sequence;
+            this.operation = operation;
+            this.payload = payload;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.springcrm.persistence;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+//Opens one write-ahead log per storage. Logging is off while storage.wal.directory is empty.
+@Component
+public class WriteAheadLogFactory {
+    private static Logger logger = LoggerFactory.getLogger(WriteAheadLogFactory.class);
+
+    private final String directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalMillis;
+    private final ObjectMapper objectMapper = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    private final List<WriteAheadLog<?>> openedLogs = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public WriteAheadLogFactory(@Value("${storage.wal.directory:}") String directory,
+                                @Value("${storage.wal.fsync:always}") String fsyncPolicy,
+                                @Value("${storage.wal.fsync-interval-ms:100}") long fsyncIntervalMillis) {
+        this.directory = directory.trim();
+        this.fsyncPolicy = FsyncPolicy.valueOf(fsyncPolicy.trim().toUpperCase(Locale.ROOT));
+        this.fsyncIntervalMillis = fsyncIntervalMillis;
+    }
+
+    public boolean isEnabled() {
+        return !directory.isEmpty();
+    }
+
+    public <T> WriteAheadLog<T> open(String name, Class<T> type) {
+        Path file = Path.of(directory, name + ".wal");
+        try {
+            Files.createDirectories(file.getParent());
+            WriteAheadLog<T> log = new WriteAheadLog<>(file, type, objectMapper, fsyncPolicy, fsyncIntervalMillis);
+            openedLogs.add(log);
+            logger.info("Opened write-ahead log {} with fsync policy {}", file, fsyncPolicy);
+            return log;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open write-ahead log " + file, e);
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        for (WriteAheadLog<?> log : openedLogs) {
+            log.close();
+        }
+        openedLogs.clear();
+    }
+}
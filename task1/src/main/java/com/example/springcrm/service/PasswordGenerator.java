@@ -0,0 +1,87 @@
+package com.example.springcrm.service;
+
+import org.springframework.stereotype.Component;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+//Random passwords from a fixed alphabet, safe for concurrent callers.
+//Callers are spread over a few stripes, each a SecureRandom with a prefilled buffer of random bytes.
+//A per-thread SecureRandom would be seeded again for every task once services run on virtual threads.
+@Component
+public class PasswordGenerator {
+    private static final char[] CHARACTERS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789".toCharArray();
+    //Bytes at or above this are skipped, so that every character is equally likely.
+    private static final int UNBIASED_LIMIT = 256 - 256 % CHARACTERS.length;
+    private static final int BUFFER_SIZE = 4096;
+
+    private final Stripe[] stripes;
+
+    public PasswordGenerator() {
+        //Power of two of at least twice the cores.
+        int stripeCount = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1) * 2;
+        stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public String generate(int length) {
+        char[] password = new char[length];
+        fill(password, 0, length);
+        return new String(password);
+    }
+
+    //All passwords are cut from one buffer of random characters.
+    public List<String> generate(int count, int length) {
+        char[] characters = new char[count * length];
+        fill(characters, 0, characters.length);
+
+        List<String> passwords = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            passwords.add(new String(characters, i * length, length));
+        }
+        return passwords;
+    }
+
+    private void fill(char[] target, int from, int to) {
+        Stripe stripe = stripes[(int) Thread.currentThread().getId() & (stripes.length - 1)];
+        stripe.lock.lock();
+        try {
+            int position = from;
+            while (position < to) {
+                if (stripe.position == BUFFER_SIZE) {
+                    stripe.random.nextBytes(stripe.buffer);
+                    stripe.position = 0;
+                }
+                int value = stripe.buffer[stripe.position++] & 0xFF;
+                if (value < UNBIASED_LIMIT) {
+                    target[position++] = CHARACTERS[value % CHARACTERS.length];
+                }
+            }
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private static final class Stripe {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SecureRandom random = newSecureRandom();
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        //Starts exhausted, so the buffer is filled on first use.
+        private int position = BUFFER_SIZE;
+
+        //DRBG locks per instance, the default NativePRNG shares one lock between all instances.
+        private static SecureRandom newSecureRandom() {
+            try {
+                return SecureRandom.getInstance("DRBG");
+            } catch (NoSuchAlgorithmException e) {
+                return new SecureRandom();
+            }
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.example.springcrm.service;
+
+import com.example.springcrm.dao.LookupCache;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//PBKDF2 password hashes, computed on a bounded pool so hashing can't take more cores than it is given.
+//When the queue is full the caller hashes on its own thread, which slows producers down instead of queueing without end.
+//Once the pool is shut down tasks are refused with RejectedExecutionException, nobody is left waiting on them.
+//Encoded form: pbkdf2-sha256$<iterations>$<salt>$<hash>, salt and hash in Base64.
+@Component
+public class PasswordHasher {
+    private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String PREFIX = "pbkdf2-sha256$";
+    private static final int SALT_BYTES = 16;
+    private static final int HASH_BITS = 256;
+
+    private final int iterations;
+    private final ThreadPoolExecutor pool;
+    private final SecureRandom saltRandom = new SecureRandom();
+    //Recent successful checks: encoded hash -> keyed digest of the password that matched it.
+    //A repeated login costs one HMAC instead of a full PBKDF2 run, the password itself is never kept.
+    private final LookupCache<String, byte[]> verified;
+    private final SecretKeySpec digestKey;
+
+    @Autowired
+    public PasswordHasher(@Value("${security.password.iterations:210000}") int iterations,
+                          @Value("${security.password.hashing-threads:0}") int threads,
+                          @Value("${security.password.queue-size:1000}") int queueSize,
+                          @Value("${security.password.verified-cache-size:10000}") int verifiedCacheSize,
+                          @Value("${security.password.verified-cache-ttl-seconds:300}") long verifiedCacheTtlSeconds) {
+        this.iterations = iterations;
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(poolSize, poolSize, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize),
+                task -> {
+                    Thread thread = new Thread(task, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, executor) -> {
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Password hashing pool is shut down");
+                    }
+                    task.run();
+                });
+        this.verified = new LookupCache<>("verified-passwords", verifiedCacheSize,
+                verifiedCacheTtlSeconds, TimeUnit.SECONDS);
+        byte[] key = new byte[32];
+        saltRandom.nextBytes(key);
+        this.digestKey = new SecretKeySpec(key, "HmacSHA256");
+    }
+
+    public String hash(String password) {
+        return hashAsync(password).join();
+    }
+
+    //A fresh hash counts as a successful check, so the first login or update with this password skips PBKDF2.
+    public CompletableFuture<String> hashAsync(String password) {
+        return CompletableFuture.supplyAsync(() -> {
+            String hash = computeHash(password);
+            byte[] digest = digest(password);
+            verified.get(hash, key -> digest);
+            return hash;
+        }, pool);
+    }
+
+    public boolean isHash(String value) {
+        return value != null && value.startsWith(PREFIX);
+    }
+
+    //Stored values that are not hashes (plain passwords from older seeds) are compared as they are.
+    public boolean verify(String password, String stored) {
+        if (password == null || stored == null) {
+            return false;
+        }
+        if (!isHash(stored)) {
+            return MessageDigest.isEqual(
+                    password.getBytes(StandardCharsets.UTF_8), stored.getBytes(StandardCharsets.UTF_8));
+        }
+
+        byte[] digest = digest(password);
+        byte[] matched = verified.get(stored, hash ->
+                CompletableFuture.supplyAsync(() -> matches(password, hash), pool).join() ? digest : null);
+        return matched != null && MessageDigest.isEqual(matched, digest);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private String computeHash(String password) {
+        byte[] salt = new byte[SALT_BYTES];
+        saltRandom.nextBytes(salt);
+        Base64.Encoder base64 = Base64.getEncoder();
+        return PREFIX + iterations
+                + "$" + base64.encodeToString(salt)
+                + "$" + base64.encodeToString(pbkdf2(password, salt, iterations));
+    }
+
+    //Malformed stored values never match.
+    private boolean matches(String password, String stored) {
+        String[] parts = stored.substring(PREFIX.length()).split("\\$");
+        if (parts.length != 3) {
+            return false;
+        }
+        try {
+            Base64.Decoder base64 = Base64.getDecoder();
+            int iterations = Integer.parseInt(parts[0]);
+            byte[] salt = base64.decode(parts[1]);
+            byte[] expected = base64.decode(parts[2]);
+            if (iterations < 1 || salt.length == 0 || expected.length == 0) {
+                return false;
+            }
+            return MessageDigest.isEqual(expected, pbkdf2(password, salt, iterations));
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, HASH_BITS);
+        try {
+            return SecretKeyFactory.getInstance(ALGORITHM).generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to hash password", e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    private byte[] digest(String password) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(digestKey);
+            return mac.doFinal(password.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Failed to digest password", e);
+        }
+    }
+}
@@ -5,70 +5,171 @@ import com.example.springcrm.exception.OutdatedUsernameException;
 import com.example.springcrm.exception.UserAlreadyExistsException;
 import com.example.springcrm.model.Trainee;
 import com.example.springcrm.model.Trainer;
+import com.example.springcrm.storage.Page;
 
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 @Service("traineeService")
 public class TraineeService extends UserService {
     private static final int RANDOM_PASSWORD_LENGTH = 10;
     private TraineeDao traineeDao;
+    private UsernameReservations reservations;
 
+    private Executor executor = ForkJoinPool.commonPool();
     private final Logger logger = LoggerFactory.getLogger(TrainerService.class);
 
 
     @Autowired
     public TraineeService(TraineeDao traineeDao) {
         this.traineeDao = traineeDao;
+        this.reservations = new UsernameReservations(
+                traineeDao::isUsernameTaken,
+                new UsernameSuffixRegistry(prefix -> traineeDao
+                        .getAllByUsernamePrefix(prefix)
+                        .stream()
+                        .map(Trainee::getUsername)
+                        .toList()));
         logger.info("TraineeService created");
     }
 
-    public void create(Trainee trainee) {
+    @Autowired(required = false)
+    public void setExecutor(@Qualifier("serviceExecutor") Executor executor) {
+        this.executor = executor;
+    }
+
+    //Shared with the other user service when usernames are unique across trainees and trainers.
+    @Autowired(required = false)
+    public void setUsernameReservations(UsernameReservations reservations) {
+        this.reservations = reservations;
+    }
+
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        registerMetrics(meterRegistry, "trainee");
+    }
+
+    //Returns the created trainee with its generated password, null if it was not created.
+    //Storage only gets the password hash. Immutable trainees are copied, mutable ones are filled in place.
+    //The username is reserved first, so concurrent registrations of the same name get different suffixes.
+    public Trainee create(Trainee trainee) {
+        String username = null;
         try {
             validateName(trainee);
 
-            String username = generateUsername(trainee.getFirstName(), trainee.getLastName());
+            username = claimUsername(trainee, reservations);
             String password = generateRandomPassword(RANDOM_PASSWORD_LENGTH);
+            String passwordHash = storedPassword(password, null);
 
-            trainee.setUsername(username);
-            trainee.setPassword(password);
-
-            traineeDao.create(trainee);
+            trainee = withPassword(withUsername(trainee, username), password);
+            trainee = issued(trainee, traineeDao.create(forStorage(trainee, passwordHash)), password);
 
             logger.info("Trainee created with username: {}", username);
-        } catch (UserAlreadyExistsException e) {
-            logger.error(e.getMessage());
-
-            trainee = handleUsernameOverlap(trainee);
-             
-            traineeDao.create(trainee);
-            logger.info("Trainee created with username: {}", trainee.getUsername());
-        } catch (IllegalArgumentException e) {
+            return trainee;
+        } catch (UserAlreadyExistsException | IllegalArgumentException e) {
             logger.error(e.getMessage());
+            return null;
+        } finally {
+            if (username != null) {
+                reservations.release(username);
+            }
         }
     }
 
-    public void update(Trainee trainee) {
+    //Returns the updated trainee, a copy if an immutable one had to get a new username, null if it was not updated.
+    //A plain password is hashed before it is stored, the returned trainee keeps what it was given and gets the new version.
+    //VersionConflictException is passed on: the trainee was changed since it was read, reload it and try again.
+    public Trainee update(Trainee trainee) {
+        String passwordHash = null;
         try {
             validateName(trainee);
+            passwordHash = storedPassword(trainee.getPassword(), traineeDao.get(trainee.getUsername()));
 
-            traineeDao.update(trainee);
+            trainee = withVersion(trainee, traineeDao.update(forStorage(trainee, passwordHash)).getVersion());
             logger.info("Trainee {} updated", trainee.getUsername());
+            return trainee;
         } catch (OutdatedUsernameException e) {
             logger.error(e.getMessage());
 
-            String username = generateUsername(trainee.getFirstName(), trainee.getLastName());
-            trainee.setUsername(username);
+            String username = claimUsername(trainee, reservations);
+            try {
+                trainee = withUsername(trainee, username);
+                trainee = withVersion(trainee, traineeDao.update(forStorage(trainee, passwordHash)).getVersion());
+            } finally {
+                reservations.release(username);
+            }
 
-            updateWithNameCheck(trainee);
-
-            logger.info("Trainee successfully updated with username: {}", username);
+            logger.info("Trainee successfully updated with username: {}", trainee.getUsername());
+            return trainee;
         } catch (IllegalArgumentException e) {
             logger.error(e.getMessage());
+            return null;
+        }
+    }
+
+    //Passwords of the batch are hashed in parallel before anything is stored.
+    public List<Trainee> createAll(List<Trainee> trainees) {
+        List<Trainee> valid = withValidNames(trainees, logger);
+        List<String> usernames = assignUsernames(valid, reservations);
+        List<String> passwords = generateRandomPasswords(valid.size(), RANDOM_PASSWORD_LENGTH);
+        List<String> passwordHashes = storedPasswords(passwords, null);
+        List<Trainee> toStore = new ArrayList<>(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            valid.set(i, withPassword(valid.get(i), passwords.get(i)));
+            toStore.add(forStorage(valid.get(i), passwordHashes.get(i)));
+        }
+
+        try {
+            List<Trainee> created = traineeDao.createAll(toStore);
+            for (int i = 0; i < valid.size(); i++) {
+                valid.set(i, issued(valid.get(i), created.get(i), passwords.get(i)));
+            }
+            logger.info("{} trainees created", created.size());
+            return valid;
+        } catch (UserAlreadyExistsException e) {
+            logger.error(e.getMessage());
+            return List.of();
+        } finally {
+            reservations.releaseAll(usernames);
+        }
+    }
+
+    //Name changes are not resolved in batches, use update for those. Returns the updated trainees with their new versions.
+    public List<Trainee> updateAll(List<Trainee> trainees) {
+        List<Trainee> valid = withValidNames(trainees, logger);
+        List<String> passwords = new ArrayList<>(valid.size());
+        List<Trainee> current = new ArrayList<>(valid.size());
+        for (Trainee trainee : valid) {
+            passwords.add(trainee.getPassword());
+            current.add(traineeDao.get(trainee.getUsername()));
+        }
+        List<String> passwordHashes = storedPasswords(passwords, current);
+        List<Trainee> toStore = new ArrayList<>(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            toStore.add(forStorage(valid.get(i), passwordHashes.get(i)));
+        }
+
+        try {
+            List<Trainee> updated = traineeDao.updateAll(toStore);
+            for (int i = 0; i < valid.size(); i++) {
+                valid.set(i, withVersion(valid.get(i), updated.get(i).getVersion()));
+            }
+            logger.info("{} trainees updated", valid.size());
+            return valid;
+        } catch (OutdatedUsernameException | UserAlreadyExistsException e) {
+            logger.error(e.getMessage());
+            return List.of();
         }
     }
 
@@ -77,6 +178,11 @@ public class TraineeService extends UserService {
         logger.info("Trainee {} deleted", trainee.getUsername());
     }
 
+    public void deleteAll(List<Trainee> trainees) {
+        traineeDao.deleteAll(trainees);
+        logger.info("{} trainees deleted", trainees.size());
+    }
+
     public Trainee select(String username) {
         return traineeDao.get(username);
     }
@@ -85,33 +191,46 @@ public class TraineeService extends UserService {
         return traineeDao.getAll();
     }
 
-    private Trainee handleUsernameOverlap(Trainee trainee) {
-        String username = trainee.getUsername();
+    //Recent successful checks are cached, so repeated logins skip the expensive hash.
+    public boolean verifyPassword(String username, String password) {
+        return checkPassword(traineeDao.get(username), password);
+    }
 
-        List<Trainee> alreadyRegistered = traineeDao.getAllByUsername(username);
+    //Async variants run the same calls on the service executor.
+    public CompletableFuture<Trainee> createAsync(Trainee trainee) {
+        return CompletableFuture.supplyAsync(() -> create(trainee), executor);
+    }
 
-        String lastUsername = alreadyRegistered
-                .stream()
-                .map(Trainee::getUsername)
-                .max(String::compareTo)
-                .orElse(null);
+    public CompletableFuture<Trainee> updateAsync(Trainee trainee) {
+        return CompletableFuture.supplyAsync(() -> update(trainee), executor);
+    }
 
-        username = nextValidUsername(lastUsername);
-        trainee.setUsername(username);
+    public CompletableFuture<Trainee> selectAsync(String username) {
+        return CompletableFuture.supplyAsync(() -> select(username), executor);
+    }
 
-        return trainee;
+    public CompletableFuture<List<Trainee>> listAsync() {
+        return CompletableFuture.supplyAsync(this::list, executor);
     }
 
-    private void updateWithNameCheck(Trainee trainee) {
-        try {
-            traineeDao.update(trainee);
-        } catch (UserAlreadyExistsException e) {
-            logger.error(e.getMessage());
-            
-            trainee = handleUsernameOverlap(trainee);
+    //Pass null cursor for the first page and getNextCursor() of the previous page for the next ones.
+    public Page<Trainee> list(String cursor, int size) {
+        return traineeDao.getPage(cursor, size);
+    }
+
+    public Stream<Trainee> stream() {
+        return traineeDao.stream();
+    }
 
-            traineeDao.update(trainee);
+    //What the caller gets back: the stored trainee, but with the plain password it was issued.
+    private Trainee issued(Trainee trainee, Trainee stored, String password) {
+        if (trainee.isImmutable()) {
+            return password.equals(stored.getPassword()) ? stored : stored.withPassword(password);
         }
+        if (stored != trainee) {
+            trainee.setUserId(stored.getUserId());
+        }
+        return trainee;
     }
 
 
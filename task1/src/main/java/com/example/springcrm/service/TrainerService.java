@@ -5,66 +5,170 @@ import com.example.springcrm.exception.OutdatedUsernameException;
 import com.example.springcrm.exception.UserAlreadyExistsException;
 import com.example.springcrm.model.Trainer;
 import com.example.springcrm.model.User;
+import com.example.springcrm.storage.Page;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 @Service("trainerService")
 public class TrainerService extends UserService {
     private static final int RANDOM_PASSWORD_LENGTH = 10;
     private TrainerDao trainerDao;
+    private UsernameReservations reservations;
 
+    private Executor executor = ForkJoinPool.commonPool();
     private final Logger logger = LoggerFactory.getLogger(TrainerService.class);
 
 
     @Autowired
     public TrainerService(TrainerDao trainerDao) {
         this.trainerDao = trainerDao;
+        this.reservations = new UsernameReservations(
+                trainerDao::isUsernameTaken,
+                new UsernameSuffixRegistry(prefix -> trainerDao
+                        .getAllByUsernamePrefix(prefix)
+                        .stream()
+                        .map(Trainer::getUsername)
+                        .toList()));
         logger.info("TrainerService created");
     }
 
-    public void create(Trainer trainer) {
+    @Autowired(required = false)
+    public void setExecutor(@Qualifier("serviceExecutor") Executor executor) {
+        this.executor = executor;
+    }
+
+    //Shared with the other user service when usernames are unique across trainees and trainers.
+    @Autowired(required = false)
+    public void setUsernameReservations(UsernameReservations reservations) {
+        this.reservations = reservations;
+    }
+
+    @Autowired(required = false)
+    public void setMeterRegistry(MeterRegistry meterRegistry) {
+        registerMetrics(meterRegistry, "trainer");
+    }
+
+    //Returns the created trainer with its generated password, null if it was not created.
+    //Storage only gets the password hash. Immutable trainers are copied, mutable ones are filled in place.
+    //The username is reserved first, so concurrent registrations of the same name get different suffixes.
+    public Trainer create(Trainer trainer) {
+        String username = null;
         try {
             validateName(trainer);
 
-            String username = generateUsername(trainer.getFirstName(), trainer.getLastName());
+            username = claimUsername(trainer, reservations);
             String password = generateRandomPassword(RANDOM_PASSWORD_LENGTH);
-    
-            trainer.setUsername(username);
-            trainer.setPassword(password);
-            trainerDao.create(trainer);
+            String passwordHash = storedPassword(password, null);
 
-            logger.info("Trainer created with username: {}", username);
-        } catch (UserAlreadyExistsException e) {
-            logger.error(e.getMessage());
+            trainer = withPassword(withUsername(trainer, username), password);
+            trainer = issued(trainer, trainerDao.create(forStorage(trainer, passwordHash)), password);
 
-            trainer = handleUsernameOverlap(trainer);
-            trainerDao.create(trainer);
-            logger.info("Trainer created with username: {}", trainer.getUsername());
-        } catch (IllegalArgumentException e) {
+            logger.info("Trainer created with username: {}", username);
+            return trainer;
+        } catch (UserAlreadyExistsException | IllegalArgumentException e) {
             logger.error(e.getMessage());
+            return null;
+        } finally {
+            if (username != null) {
+                reservations.release(username);
+            }
         }
     }
 
-    public void update(Trainer trainer) {
+    //Returns the updated trainer, a copy if an immutable one had to get a new username, null if it was not updated.
+    //A plain password is hashed before it is stored, the returned trainer keeps what it was given and gets the new version.
+    //VersionConflictException is passed on: the trainer was changed since it was read, reload it and try again.
+    public Trainer update(Trainer trainer) {
+        String passwordHash = null;
         try {
             validateName(trainer);
-            trainerDao.update(trainer);
+            passwordHash = storedPassword(trainer.getPassword(), trainerDao.get(trainer.getUsername()));
+
+            trainer = withVersion(trainer, trainerDao.update(forStorage(trainer, passwordHash)).getVersion());
             logger.info("Trainer {} updated", trainer.getUsername());
+            return trainer;
         } catch (OutdatedUsernameException e) {
             logger.error(e.getMessage());
 
-            String username = generateUsername(trainer.getFirstName(), trainer.getLastName());
-            trainer.setUsername(username);
-            
-            updateWithNameCheck(trainer);
-            
-            logger.info("Trainer successfully updated with username: {}", username);
+            String username = claimUsername(trainer, reservations);
+            try {
+                trainer = withUsername(trainer, username);
+                trainer = withVersion(trainer, trainerDao.update(forStorage(trainer, passwordHash)).getVersion());
+            } finally {
+                reservations.release(username);
+            }
+
+            logger.info("Trainer successfully updated with username: {}", trainer.getUsername());
+            return trainer;
         } catch (IllegalArgumentException e) {
             logger.error(e.getMessage());
+            return null;
+        }
+    }
+
+    //Passwords of the batch are hashed in parallel before anything is stored.
+    public List<Trainer> createAll(List<Trainer> trainers) {
+        List<Trainer> valid = withValidNames(trainers, logger);
+        List<String> usernames = assignUsernames(valid, reservations);
+        List<String> passwords = generateRandomPasswords(valid.size(), RANDOM_PASSWORD_LENGTH);
+        List<String> passwordHashes = storedPasswords(passwords, null);
+        List<Trainer> toStore = new ArrayList<>(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            valid.set(i, withPassword(valid.get(i), passwords.get(i)));
+            toStore.add(forStorage(valid.get(i), passwordHashes.get(i)));
+        }
+
+        try {
+            List<Trainer> created = trainerDao.createAll(toStore);
+            for (int i = 0; i < valid.size(); i++) {
+                valid.set(i, issued(valid.get(i), created.get(i), passwords.get(i)));
+            }
+            logger.info("{} trainers created", created.size());
+            return valid;
+        } catch (UserAlreadyExistsException e) {
+            logger.error(e.getMessage());
+            return List.of();
+        } finally {
+            reservations.releaseAll(usernames);
+        }
+    }
+
+    //Name changes are not resolved in batches, use update for those. Returns the updated trainers with their new versions.
+    public List<Trainer> updateAll(List<Trainer> trainers) {
+        List<Trainer> valid = withValidNames(trainers, logger);
+        List<String> passwords = new ArrayList<>(valid.size());
+        List<Trainer> current = new ArrayList<>(valid.size());
+        for (Trainer trainer : valid) {
+            passwords.add(trainer.getPassword());
+            current.add(trainerDao.get(trainer.getUsername()));
+        }
+        List<String> passwordHashes = storedPasswords(passwords, current);
+        List<Trainer> toStore = new ArrayList<>(valid.size());
+        for (int i = 0; i < valid.size(); i++) {
+            toStore.add(forStorage(valid.get(i), passwordHashes.get(i)));
+        }
+
+        try {
+            List<Trainer> updated = trainerDao.updateAll(toStore);
+            for (int i = 0; i < valid.size(); i++) {
+                valid.set(i, withVersion(valid.get(i), updated.get(i).getVersion()));
+            }
+            logger.info("{} trainers updated", valid.size());
+            return valid;
+        } catch (OutdatedUsernameException | UserAlreadyExistsException e) {
+            logger.error(e.getMessage());
+            return List.of();
         }
     }
 
@@ -76,32 +180,45 @@ public class TrainerService extends UserService {
         return trainerDao.getAll();
     }
 
-    private Trainer handleUsernameOverlap(Trainer trainer) {
-        String username = trainer.getUsername();
+    //Recent successful checks are cached, so repeated logins skip the expensive hash.
+    public boolean verifyPassword(String username, String password) {
+        return checkPassword(trainerDao.get(username), password);
+    }
 
-        List<Trainer> alreadyRegistered = trainerDao.getAllByUsername(username);
+    //Async variants run the same calls on the service executor.
+    public CompletableFuture<Trainer> createAsync(Trainer trainer) {
+        return CompletableFuture.supplyAsync(() -> create(trainer), executor);
+    }
 
-        String lastUsername = alreadyRegistered
-                .stream()
-                .map(Trainer::getUsername)
-                .max(String::compareTo)
-                .orElse(null);
+    public CompletableFuture<Trainer> updateAsync(Trainer trainer) {
+        return CompletableFuture.supplyAsync(() -> update(trainer), executor);
+    }
 
-        username = nextValidUsername(lastUsername);
-        trainer.setUsername(username);
+    public CompletableFuture<Trainer> selectAsync(String username) {
+        return CompletableFuture.supplyAsync(() -> select(username), executor);
+    }
 
-        return trainer;
+    public CompletableFuture<List<Trainer>> listAsync() {
+        return CompletableFuture.supplyAsync(this::list, executor);
     }
 
-    private void updateWithNameCheck(Trainer trainer) {
-        try {
-            trainerDao.update(trainer);
-        } catch (UserAlreadyExistsException e) {
-            logger.error(e.getMessage());
-            
-            trainer = handleUsernameOverlap(trainer);
+    //Pass null cursor for the first page and getNextCursor() of the previous page for the next ones.
+    public Page<Trainer> list(String cursor, int size) {
+        return trainerDao.getPage(cursor, size);
+    }
+
+    public Stream<Trainer> stream() {
+        return trainerDao.stream();
+    }
 
-            trainerDao.update(trainer);
+    //What the caller gets back: the stored trainer, but with the plain password it was issued.
+    private Trainer issued(Trainer trainer, Trainer stored, String password) {
+        if (trainer.isImmutable()) {
+            return password.equals(stored.getPassword()) ? stored : stored.withPassword(password);
         }
+        if (stored != trainer) {
+            trainer.setUserId(stored.getUserId());
+        }
+        return trainer;
     }
 }
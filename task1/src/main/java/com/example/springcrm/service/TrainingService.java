@@ -2,16 +2,26 @@ package com.example.springcrm.service;
 
 import com.example.springcrm.dao.TrainingDao;
 import com.example.springcrm.model.Training;
+import com.example.springcrm.model.TrainingTotals;
+import com.example.springcrm.model.TrainingType;
+import com.example.springcrm.storage.Page;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 @Service("trainingService")
 public class TrainingService  {
     private TrainingDao trainingDao;
+    private Executor executor = ForkJoinPool.commonPool();
     private final Logger logger = LoggerFactory.getLogger(TrainingService.class);
 
 
@@ -21,6 +31,11 @@ public class TrainingService  {
         logger.info("TrainingService created");
     }
 
+    @Autowired(required = false)
+    public void setExecutor(@Qualifier("serviceExecutor") Executor executor) {
+        this.executor = executor;
+    }
+
     public void create(Training training) {
         try {
             trainingDao.create(training);
@@ -30,6 +45,15 @@ public class TrainingService  {
         }
     }
 
+    public void createAll(List<Training> trainings) {
+        try {
+            trainingDao.createAll(trainings);
+            logger.info("{} trainings created", trainings.size());
+        } catch (IllegalArgumentException e) {
+            logger.error(e.getMessage());
+        }
+    }
+
     public Training select(String id) {
         return trainingDao.get(id);
     }
@@ -37,4 +61,70 @@ public class TrainingService  {
     public List<Training> list() {
         return trainingDao.getAll();
     }
+
+    //Async variants run the same calls on the service executor.
+    public CompletableFuture<Void> createAsync(Training training) {
+        return CompletableFuture.runAsync(() -> create(training), executor);
+    }
+
+    public CompletableFuture<Training> selectAsync(String id) {
+        return CompletableFuture.supplyAsync(() -> select(id), executor);
+    }
+
+    public CompletableFuture<List<Training>> listAsync() {
+        return CompletableFuture.supplyAsync(this::list, executor);
+    }
+
+    //Pass null cursor for the first page and getNextCursor() of the previous page for the next ones.
+    public Page<Training> list(String cursor, int size) {
+        return trainingDao.getPage(cursor, size);
+    }
+
+    public Stream<Training> stream() {
+        return trainingDao.stream();
+    }
+
+    public List<Training> listByTrainee(String traineeId) {
+        return trainingDao.getAllByTraineeId(traineeId);
+    }
+
+    public List<Training> listByTrainer(String trainerId) {
+        return trainingDao.getAllByTrainerId(trainerId);
+    }
+
+    public List<Training> listByTrainingType(TrainingType trainingType) {
+        return trainingDao.getAllByTrainingType(trainingType);
+    }
+
+    //Unknown names are not registered as new types.
+    public List<Training> listByTrainingType(String trainingTypeName) {
+        TrainingType trainingType = TrainingType.find(trainingTypeName);
+        return trainingType == null ? List.of() : trainingDao.getAllByTrainingType(trainingType);
+    }
+
+    //From is inclusive, to is exclusive.
+    public List<Training> listBetween(Date from, Date to) {
+        return trainingDao.getAllBetween(from, to);
+    }
+
+    public List<Training> listByTraineeBetween(String traineeId, Date from, Date to) {
+        return trainingDao.getAllByTraineeIdBetween(traineeId, from, to);
+    }
+
+    public List<Training> listByTrainerBetween(String trainerId, Date from, Date to) {
+        return trainingDao.getAllByTrainerIdBetween(trainerId, from, to);
+    }
+
+    //Answered from running totals, no trainings are read.
+    public TrainingTotals getTrainerTotals(String trainerId) {
+        return trainingDao.getTotalsByTrainerId(trainerId);
+    }
+
+    public TrainingTotals getTraineeTotals(String traineeId) {
+        return trainingDao.getTotalsByTraineeId(traineeId);
+    }
+
+    public TrainingTotals getTrainingTypeTotals(TrainingType trainingType) {
+        return trainingDao.getTotalsByTrainingType(trainingType);
+    }
 }
@@ -1,20 +1,121 @@
 package com.example.springcrm.service;
 
+import com.example.springcrm.metrics.MetricNames;
 import com.example.springcrm.model.User;
-import java.util.Random;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 
 public abstract class UserService {
-    private static final String RANDOM_PASSWORD_CHARACTERS =
-            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    //Null unless one is injected, services built by hand share a fallback that is only created on first use.
+    private PasswordGenerator passwordGenerator;
+    //Without a hasher (services built by hand) passwords are stored as they are.
+    private PasswordHasher passwordHasher;
+    //Null until a registry is injected, services built by hand count nothing.
+    private Counter usernameCollisions;
+
+    @Autowired(required = false)
+    public void setPasswordGenerator(PasswordGenerator passwordGenerator) {
+        this.passwordGenerator = passwordGenerator;
+    }
+
+    @Autowired(required = false)
+    public void setPasswordHasher(PasswordHasher passwordHasher) {
+        this.passwordHasher = passwordHasher;
+    }
+
+    void registerMetrics(MeterRegistry registry, String service) {
+        usernameCollisions = registry.counter(MetricNames.USERNAME_COLLISIONS, "service", service);
+    }
+
+    void countUsernameCollision() {
+        if (usernameCollisions != null) {
+            usernameCollisions.increment();
+        }
+    }
 
     String generateRandomPassword(int length) {
-        Random random = new Random();
-        char[] password = new char[length];
-        for (int i = 0; i < length; i++) {
-            int randomPosition = random.nextInt(RANDOM_PASSWORD_CHARACTERS.length());
-            password[i] = RANDOM_PASSWORD_CHARACTERS.charAt(randomPosition);
+        return passwordGenerator().generate(length);
+    }
+
+    List<String> generateRandomPasswords(int count, int length) {
+        return passwordGenerator().generate(count, length);
+    }
+
+    //Value to keep in storage for this password, current is the stored user it replaces (null for new users).
+    //A password that is the stored value or matches it is unchanged and keeps the stored hash,
+    //anything else is hashed, whatever it looks like.
+    String storedPassword(String password, User current) {
+        if (passwordHasher == null || password == null) {
+            return password;
         }
-        return new String(password);
+        if (isUnchanged(password, current)) {
+            return current.getPassword();
+        }
+        return passwordHasher.hash(password);
+    }
+
+    //Passwords of a batch are hashed in parallel, results keep the order of the input.
+    //current holds the stored users they replace, null for a batch of new users.
+    List<String> storedPasswords(List<String> passwords, List<? extends User> current) {
+        if (passwordHasher == null) {
+            return passwords;
+        }
+        List<CompletableFuture<String>> hashes = new ArrayList<>(passwords.size());
+        for (int i = 0; i < passwords.size(); i++) {
+            String password = passwords.get(i);
+            User currentUser = current == null ? null : current.get(i);
+            if (password == null) {
+                hashes.add(CompletableFuture.completedFuture(null));
+            } else if (isUnchanged(password, currentUser)) {
+                hashes.add(CompletableFuture.completedFuture(currentUser.getPassword()));
+            } else {
+                hashes.add(passwordHasher.hashAsync(password));
+            }
+        }
+        List<String> result = new ArrayList<>(hashes.size());
+        for (CompletableFuture<String> hash : hashes) {
+            result.add(hash.join());
+        }
+        return result;
+    }
+
+    //Fresh hashes are remembered as verified, so the plain password a caller got from create is a cheap check.
+    private boolean isUnchanged(String password, User current) {
+        return current != null
+                && current.getPassword() != null
+                && (password.equals(current.getPassword()) || passwordHasher.verify(password, current.getPassword()));
+    }
+
+    //The copy that goes to storage, the user itself when nothing has to change.
+    @SuppressWarnings("unchecked")
+    <T extends User> T forStorage(T user, String storedPassword) {
+        if (Objects.equals(storedPassword, user.getPassword())) {
+            return user;
+        }
+        if (user.isImmutable()) {
+            return (T) user.withPassword(storedPassword);
+        }
+        T copy = (T) user.clone();
+        copy.setPassword(storedPassword);
+        return copy;
+    }
+
+    boolean checkPassword(User user, String password) {
+        if (user == null || password == null) {
+            return false;
+        }
+        if (passwordHasher == null) {
+            return password.equals(user.getPassword());
+        }
+        return passwordHasher.verify(password, user.getPassword());
     }
 
     void validateName(User user) throws IllegalArgumentException {
@@ -36,6 +137,74 @@ public abstract class UserService {
         return firstName + "." + lastName;
     }
 
+    //Valid users of the batch, invalid ones are logged and skipped like in single create.
+    <T extends User> List<T> withValidNames(Collection<T> users, Logger logger) {
+        List<T> valid = new ArrayList<>(users.size());
+        for (T user : users) {
+            try {
+                validateName(user);
+                valid.add(user);
+            } catch (IllegalArgumentException e) {
+                logger.error(e.getMessage());
+            }
+        }
+        return valid;
+    }
+
+    //Claims the generated username, or a suffixed one if it is taken. The claim has to be released afterwards.
+    String claimUsername(User user, UsernameReservations reservations) {
+        String baseUsername = generateUsername(user.getFirstName(), user.getLastName());
+        String username = reservations.claim(baseUsername);
+        if (!username.equals(baseUsername)) {
+            countUsernameCollision();
+        }
+        return username;
+    }
+
+    //Claims usernames for a whole batch at once, collisions inside the batch included.
+    //Returns the claims, they have to be released once the batch is stored.
+    <T extends User> List<String> assignUsernames(List<T> users, UsernameReservations reservations) {
+        List<String> usernames = new ArrayList<>(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            T user = users.get(i);
+            String username = claimUsername(user, reservations);
+            usernames.add(username);
+            users.set(i, withUsername(user, username));
+        }
+        return usernames;
+    }
+
+    //Immutable users are copied, mutable ones are still changed in place.
+    @SuppressWarnings("unchecked")
+    <T extends User> T withUsername(T user, String username) {
+        if (user.isImmutable()) {
+            return (T) user.withUsername(username);
+        }
+        user.setUsername(username);
+        return user;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T extends User> T withPassword(T user, String password) {
+        if (user.isImmutable()) {
+            return (T) user.withPassword(password);
+        }
+        user.setPassword(password);
+        return user;
+    }
+
+    @SuppressWarnings("unchecked")
+    <T extends User> T withVersion(T user, long version) {
+        if (user.getVersion() == version) {
+            return user;
+        }
+        if (user.isImmutable()) {
+            return (T) user.withVersion(version);
+        }
+        user.setVersion(version);
+        return user;
+    }
+
     String nextValidUsername(String lastUsedUsername) {
         char[] chars = lastUsedUsername.toCharArray();
         int lastLetterIndex = chars.length - 1;
@@ -69,4 +238,13 @@ public abstract class UserService {
 
         return result.toString();
     }
+
+    private PasswordGenerator passwordGenerator() {
+        return passwordGenerator != null ? passwordGenerator : FallbackPasswordGenerator.INSTANCE;
+    }
+
+    //Loaded on first use only, so an injected generator means the fallback's DRBG stripes are never built.
+    private static final class FallbackPasswordGenerator {
+        private static final PasswordGenerator INSTANCE = new PasswordGenerator();
+    }
 }
@@ -0,0 +1,54 @@
+package com.example.springcrm.service;
+
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+//Usernames being registered right now. A claim is a putIfAbsent, so two concurrent registrations
+//of the same name can't both get it, and the loser moves on to the next suffix instead of failing later in storage.
+//Claims are released once the user is stored (or the registration failed); from then on storage answers.
+public class UsernameReservations {
+    private final Set<String> claimed = ConcurrentHashMap.newKeySet();
+    private final Predicate<String> isStored;
+    private final UsernameSuffixRegistry suffixRegistry;
+
+    public UsernameReservations(Predicate<String> isStored, UsernameSuffixRegistry suffixRegistry) {
+        this.isStored = isStored;
+        this.suffixRegistry = suffixRegistry;
+    }
+
+    //Claims the base username, or the next suffixed one when it is taken. Suffixes are handed out once,
+    //so a second attempt only happens if a suffixed name was stored directly.
+    public String claim(String baseUsername) {
+        String username = baseUsername;
+        while (!tryClaim(username)) {
+            username = suffixRegistry.nextUsername(baseUsername);
+        }
+        return username;
+    }
+
+    public void release(String username) {
+        claimed.remove(username);
+    }
+
+    public void releaseAll(Collection<String> usernames) {
+        claimed.removeAll(usernames);
+    }
+
+    int size() {
+        return claimed.size();
+    }
+
+    private boolean tryClaim(String username) {
+        if (!claimed.add(username)) {
+            return false;
+        }
+        //Anyone storing this name did it before we got the claim, so this check can't miss it.
+        if (isStored.test(username)) {
+            claimed.remove(username);
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.springcrm.service;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+//Keeps the last used numeric suffix for every "First.Last" base username.
+//A counter is seeded from storage the first time its base collides, after that it is O(1).
+public class UsernameSuffixRegistry {
+    private static final int MAX_SUFFIX_DIGITS = 9;
+
+    private final Map<String, AtomicInteger> counters = new ConcurrentHashMap<>();
+    private final ToIntFunction<String> lastSuffix;
+
+    public UsernameSuffixRegistry(Function<String, Collection<String>> usernamesWithPrefix) {
+        this.lastSuffix = baseUsername -> lastSuffix(baseUsername, usernamesWithPrefix.apply(baseUsername));
+    }
+
+    private UsernameSuffixRegistry(ToIntFunction<String> lastSuffix) {
+        this.lastSuffix = lastSuffix;
+    }
+
+    //For sources that know the last used suffix of a base without listing its usernames.
+    public static UsernameSuffixRegistry ofLastSuffix(ToIntFunction<String> lastSuffix) {
+        return new UsernameSuffixRegistry(lastSuffix);
+    }
+
+    public int nextSuffix(String baseUsername) {
+        return counters
+                .computeIfAbsent(baseUsername, this::seed)
+                .incrementAndGet();
+    }
+
+    public String nextUsername(String baseUsername) {
+        return baseUsername + nextSuffix(baseUsername);
+    }
+
+    private AtomicInteger seed(String baseUsername) {
+        return new AtomicInteger(lastSuffix.applyAsInt(baseUsername));
+    }
+
+    private static int lastSuffix(String baseUsername, Collection<String> usernames) {
+        int lastSuffix = 0;
+        for (String username : usernames) {
+            lastSuffix = Math.max(lastSuffix, suffixOf(baseUsername, username));
+        }
+        return lastSuffix;
+    }
+
+    //Numeric suffix of username for the given base, 0 if it is the base itself or belongs to another base.
+    static int suffixOf(String baseUsername, String username) {
+        int suffixLength = username.length() - baseUsername.length();
+        if (suffixLength <= 0
+                || suffixLength > MAX_SUFFIX_DIGITS
+                || !username.startsWith(baseUsername)) {
+            return 0;
+        }
+
+        for (int i = baseUsername.length(); i < username.length(); i++) {
+            char c = username.charAt(i);
+            if (c < '0' || c > '9') {
+                return 0;
+            }
+        }
+        return Integer.parseInt(username, baseUsername.length(), username.length(), 10);
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.springcrm.storage;
+
+//What a write did to one key: the value it stored and the one it replaced, null if the key was free.
+//Both are taken inside the write, so callers keeping derived totals never have to read storage again.
+public class Change<T> {
+    private final T stored;
+    private final T replaced;
+
+    public Change(T stored, T replaced) {
+        this.stored = stored;
+        this.replaced = replaced;
+    }
+
+    public T getStored() {
+        return stored;
+    }
+
+    public T getReplaced() {
+        return replaced;
+    }
+}
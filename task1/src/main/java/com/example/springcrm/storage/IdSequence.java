@@ -0,0 +1,58 @@
+package com.example.springcrm.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+//Monotonic id source for one entity type. Ids are never reused, even after deletes.
+public class IdSequence {
+    private static final int MAX_ID_DIGITS = 18;
+
+    private final AtomicLong highWaterMark;
+
+    public IdSequence() {
+        this(0);
+    }
+
+    public IdSequence(long highWaterMark) {
+        this.highWaterMark = new AtomicLong(highWaterMark);
+    }
+
+    public long next() {
+        return highWaterMark.incrementAndGet();
+    }
+
+    //Reserves a block of ids for batch inserts and returns the first one.
+    public long reserve(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Id block size must be positive: " + count);
+        }
+        return highWaterMark.getAndAdd(count) + 1;
+    }
+
+    //Makes sure ids that came from outside (seed files, restored state) are not handed out again.
+    public void advanceTo(long usedId) {
+        highWaterMark.accumulateAndGet(usedId, Math::max);
+    }
+
+    //Non-numeric ids (like "trainee001") can't collide with generated ones and are ignored.
+    public void advanceTo(String usedId) {
+        if (isGenerated(usedId)) {
+            advanceTo(Long.parseLong(usedId));
+        }
+    }
+
+    public long getHighWaterMark() {
+        return highWaterMark.get();
+    }
+
+    private static boolean isGenerated(String id) {
+        if (id == null || id.isEmpty() || id.length() > MAX_ID_DIGITS) {
+            return false;
+        }
+        for (int i = 0; i < id.length(); i++) {
+            if (id.charAt(i) < '0' || id.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.springcrm.storage;
+
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Consumer;
+
+//Streams a JSON array from resources record by record and hands it over in batches,
+//so a seed file is never fully materialized in memory.
+public class JsonSeedLoader {
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+    private static final long PROGRESS_LOG_INTERVAL = 100_000;
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonSeedLoader.class);
+
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    //Null means batches are consumed on the calling thread.
+    private final ForkJoinPool pool;
+
+    public JsonSeedLoader() {
+        this(newObjectMapper(), DEFAULT_BATCH_SIZE, null);
+    }
+
+    //Trainings carry Instant dates and Duration lengths, which a plain ObjectMapper cannot read.
+    public static ObjectMapper newObjectMapper() {
+        return JsonMapper.builder()
+                .addModule(new JavaTimeModule())
+                .build();
+    }
+
+    public JsonSeedLoader(ObjectMapper objectMapper, int batchSize, ForkJoinPool pool) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Seed batch size must be positive: " + batchSize);
+        }
+        this.objectMapper = objectMapper;
+        this.batchSize = batchSize;
+        this.pool = pool;
+    }
+
+    //Consumer has to be thread safe when the loader has a pool.
+    public <T> long load(String filePath, Class<T> type, Consumer<List<T>> batchConsumer) {
+        Resource resource = new ClassPathResource(filePath);
+        if (!resource.exists()) {
+            throw new RuntimeException("File not found in resources: " + filePath);
+        }
+
+        long startTime = System.nanoTime();
+        long loaded = 0;
+        Deque<ForkJoinTask<?>> inFlight = new ArrayDeque<>();
+
+        try (InputStream inputStream = resource.getInputStream();
+             MappingIterator<T> records = objectMapper.readerFor(type).readValues(inputStream)) {
+            List<T> batch = new ArrayList<>(batchSize);
+            while (records.hasNextValue()) {
+                batch.add(records.nextValue());
+                loaded++;
+
+                if (batch.size() == batchSize) {
+                    submit(batch, batchConsumer, inFlight);
+                    batch = new ArrayList<>(batchSize);
+                }
+                if (loaded % PROGRESS_LOG_INTERVAL == 0) {
+                    logger.info("Loaded {} records from {}", loaded, filePath);
+                }
+            }
+            if (!batch.isEmpty()) {
+                submit(batch, batchConsumer, inFlight);
+            }
+            while (!inFlight.isEmpty()) {
+                inFlight.poll().join();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load records from file: " + filePath, e);
+        }
+
+        logger.info("Loaded {} records from {} in {} ms",
+                loaded, filePath, (System.nanoTime() - startTime) / 1_000_000);
+        return loaded;
+    }
+
+    private <T> void submit(List<T> batch, Consumer<List<T>> batchConsumer, Deque<ForkJoinTask<?>> inFlight) {
+        if (pool == null) {
+            batchConsumer.accept(batch);
+            return;
+        }
+
+        //Bounds the number of parsed but not yet stored batches.
+        if (inFlight.size() >= pool.getParallelism() * 2) {
+            inFlight.poll().join();
+        }
+        inFlight.add(pool.submit(() -> batchConsumer.accept(batch)));
+    }
+}
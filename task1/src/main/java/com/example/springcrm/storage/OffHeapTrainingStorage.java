@@ -0,0 +1,547 @@
+package com.example.springcrm.storage;
+
+import com.example.springcrm.model.Training;
+import com.example.springcrm.model.TrainingKey;
+import com.example.springcrm.model.TrainingType;
+import com.example.springcrm.persistence.SnapshotManager;
+import com.example.springcrm.persistence.WriteAheadLogFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+//Trainings kept in fixed-width slots of a memory-mapped file instead of heap objects.
+//Slot: [trainee code][trainer code][trainer name code][type code][date millis][duration seconds], strings
+//are dictionary encoded and the type is stored as its registry code. The heap keeps only the sorted key -> slot index, Training objects are built on read.
+//Trainee, trainer and type lookups go through small on-heap indexes from code to slots, so they read only matching slots.
+//The file is scratch space recreated on every start and the engine has no write-ahead log or snapshots, so trainings
+//do not survive a restart. Startup fails when either is configured rather than pretend they cover trainings.
+@Repository("trainingStorage")
+@Profile("off-heap")
+public class OffHeapTrainingStorage implements Storage<Training>, TrainingQueries {
+    private static final String FILE_PATH = "trainings.json";
+
+    private static final int TRAINEE_OFFSET = 0;
+    private static final int TRAINER_OFFSET = 4;
+    private static final int TRAINER_NAME_OFFSET = 8;
+    private static final int TYPE_OFFSET = 12;
+    private static final int DATE_OFFSET = 16;
+    private static final int DURATION_OFFSET = 24;
+    private static final int SLOT_SIZE = 32;
+
+    private static final int FREE_SLOT = -2;
+    private static final int NO_TYPE = -1;
+    private static final long NO_VALUE = Long.MIN_VALUE;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int slotsPerSegment;
+    private final List<MappedByteBuffer> segments = new ArrayList<>();
+    private final NavigableMap<TrainingKey, Integer> slots = new ConcurrentSkipListMap<>();
+    private final StringDictionary dictionary = new StringDictionary();
+    //Dictionary code -> slots; a trainee or trainer has few trainings, so a short list each.
+    private final Map<Integer, SlotList> byTraineeCode = new HashMap<>();
+    private final Map<Integer, SlotList> byTrainerCode = new HashMap<>();
+    //Type code -> slots; there are few types with many trainings each, so a bitmap each.
+    private final Map<Integer, BitSet> byTypeCode = new HashMap<>();
+    private final IdSequence ids;
+    //Slot memory and the indexes are not thread safe on their own, reads share the lock and every write takes it exclusively.
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int[] freeSlots = new int[16];
+    private int freeSlotCount;
+    private int usedSlots;
+
+    private JsonSeedLoader seedLoader = new JsonSeedLoader();
+    private WriteAheadLogFactory writeAheadLogFactory;
+    private SnapshotManager snapshotManager;
+    private static Logger logger = LoggerFactory.getLogger(OffHeapTrainingStorage.class);
+
+    @Autowired
+    public OffHeapTrainingStorage(@Value("${storage.off-heap.directory:}") String directory,
+                                  @Value("${storage.off-heap.slots-per-segment:1048576}") int slotsPerSegment,
+                                  @Qualifier("trainingIds") IdSequence ids) {
+        this.slotsPerSegment = slotsPerSegment;
+        this.ids = ids;
+        try {
+            Path parent = Path.of(directory.isBlank() ? System.getProperty("java.io.tmpdir") : directory);
+            Files.createDirectories(parent);
+            this.file = Files.createTempFile(parent, "trainings-", ".slots");
+            this.file.toFile().deleteOnExit();
+            this.channel = FileChannel.open(file,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create off-heap trainings file", e);
+        }
+        logger.info("Created off-heap trainingStorage instance in {}", file);
+    }
+
+    @Autowired(required = false)
+    public void setSeedLoader(JsonSeedLoader seedLoader) {
+        this.seedLoader = seedLoader;
+    }
+
+    @Autowired(required = false)
+    public void setWriteAheadLogFactory(WriteAheadLogFactory writeAheadLogFactory) {
+        this.writeAheadLogFactory = writeAheadLogFactory;
+    }
+
+    @Autowired(required = false)
+    public void setSnapshotManager(SnapshotManager snapshotManager) {
+        this.snapshotManager = snapshotManager;
+    }
+
+    @Override
+    @PostConstruct
+    public void init() {
+        if ((writeAheadLogFactory != null && writeAheadLogFactory.isEnabled())
+                || (snapshotManager != null && snapshotManager.isEnabled())) {
+            throw new IllegalStateException("Off-heap trainings are neither logged nor snapshotted, "
+                    + "clear storage.wal.directory and storage.snapshot.directory or run without the off-heap profile");
+        }
+        if (LOADING_FROM_FILE) {
+            logger.info("Loading trainings from resources: " + FILE_PATH);
+            seedLoader.load(FILE_PATH, Training.class, this::updateAll);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Failed to remove off-heap trainings file {}", file, e);
+        }
+    }
+
+    @Override
+    public Training get(String key) throws IllegalArgumentException {
+        return get(TrainingKey.parse(key));
+    }
+
+    @Override
+    public Training get(Training value) {
+        return get(value.getKey());
+    }
+
+    @Override
+    public Training create(Training training) {
+        lock.writeLock().lock();
+        try {
+            if (slots.containsKey(training.getKey())) {
+                return null;
+            }
+            return read(write(training));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Change<Training> update(Training training) throws IllegalArgumentException {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.get(training.getKey());
+            Training replaced = slot == null ? null : read(slot);
+            return new Change<>(read(write(training)), replaced);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Training delete(Training training) throws IllegalArgumentException {
+        lock.writeLock().lock();
+        try {
+            Integer slot = slots.remove(training.getKey());
+            if (slot == null) {
+                return null;
+            }
+            Training removed = read(slot);
+            release(slot);
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Training> createAll(Collection<Training> newTrainings) {
+        lock.writeLock().lock();
+        try {
+            Set<TrainingKey> keys = new HashSet<>();
+            for (Training training : newTrainings) {
+                TrainingKey key = training.getKey();
+                if (!keys.add(key) || slots.containsKey(key)) {
+                    return null;
+                }
+            }
+            List<Training> created = new ArrayList<>(newTrainings.size());
+            for (Training training : newTrainings) {
+                created.add(read(write(training)));
+            }
+            return created;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Change<Training>> updateAll(Collection<Training> newTrainings) {
+        lock.writeLock().lock();
+        try {
+            List<Change<Training>> changes = new ArrayList<>(newTrainings.size());
+            for (Training training : newTrainings) {
+                changes.add(update(training));
+            }
+            return changes;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Training> deleteAll(Collection<Training> trainingsToDelete) {
+        lock.writeLock().lock();
+        try {
+            List<Training> removed = new ArrayList<>();
+            for (Training training : trainingsToDelete) {
+                Training oldValue = delete(training);
+                if (oldValue != null) {
+                    removed.add(oldValue);
+                }
+            }
+            return removed;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //Not cached like the heap engine does, that would bring every training back onto the heap.
+    @Override
+    public List<Training> getAll() {
+        lock.readLock().lock();
+        try {
+            List<Training> trainings = new ArrayList<>(slots.size());
+            slots.forEach((key, slot) -> trainings.add(read(slot)));
+            return trainings;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return getUsedSlots();
+    }
+
+    @Override
+    public Page<Training> getPage(String cursor, int size) {
+        String lastKey = Page.decodeCursor(cursor);
+        NavigableMap<TrainingKey, Integer> keys = lastKey == null
+                ? slots
+                : slots.tailMap(TrainingKey.parse(lastKey), false);
+        return Page.of(keys.keySet().iterator(), this::get, size, TrainingKey::toString);
+    }
+
+    @Override
+    public Stream<Training> stream() {
+        return slots.keySet()
+                .stream()
+                .map(this::get)
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public String getNextId() {
+        return Long.toString(ids.next());
+    }
+
+    @Override
+    public List<String> getNextIds(int count) {
+        long firstId = ids.reserve(count);
+        return LongStream.range(firstId, firstId + count)
+                .mapToObj(Long::toString)
+                .toList();
+    }
+
+    @Override
+    public void cleanAll() {
+        lock.writeLock().lock();
+        try {
+            slots.clear();
+            byTraineeCode.clear();
+            byTrainerCode.clear();
+            byTypeCode.clear();
+            dictionary.clear();
+            freeSlotCount = 0;
+            usedSlots = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Training> getAllByTraineeId(String traineeId) {
+        return select(byTraineeCode, traineeId, slot -> true);
+    }
+
+    @Override
+    public List<Training> getAllByTrainerId(String trainerId) {
+        return select(byTrainerCode, trainerId, slot -> true);
+    }
+
+    @Override
+    public List<Training> getAllByTrainingType(TrainingType trainingType) {
+        if (trainingType == null) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            BitSet matching = byTypeCode.get(trainingType.getCode());
+            if (matching == null) {
+                return List.of();
+            }
+            List<Training> trainings = new ArrayList<>(matching.cardinality());
+            for (int slot = matching.nextSetBit(0); slot >= 0; slot = matching.nextSetBit(slot + 1)) {
+                trainings.add(read(slot));
+            }
+            return trainings;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Training> getAllBetween(Date from, Date to) {
+        lock.readLock().lock();
+        try {
+            List<Training> trainings = new ArrayList<>();
+            slots.subMap(TrainingKey.first(from.getTime()), true, TrainingKey.first(to.getTime()), false)
+                    .forEach((key, slot) -> trainings.add(read(slot)));
+            return trainings;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Training> getAllByTrainerIdBetween(String trainerId, Date from, Date to) {
+        return select(byTrainerCode, trainerId, slot -> isBetween(slot, from, to));
+    }
+
+    @Override
+    public List<Training> getAllByTraineeIdBetween(String traineeId, Date from, Date to) {
+        return select(byTraineeCode, traineeId, slot -> isBetween(slot, from, to));
+    }
+
+    //Number of slots in use, freed slots are reused before the file grows.
+    public int getUsedSlots() {
+        return usedSlots - freeSlotCount;
+    }
+
+    private Training get(TrainingKey key) {
+        lock.readLock().lock();
+        try {
+            Integer slot = slots.get(key);
+            return slot == null ? null : read(slot);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //The code is looked up under the lock, cleanAll resets the dictionary and a stale code could mean another id.
+    private List<Training> select(Map<Integer, SlotList> index, String id, IntPredicate matches) {
+        lock.readLock().lock();
+        try {
+            SlotList matching = index.get(dictionary.find(id));
+            if (matching == null) {
+                return List.of();
+            }
+            int[] inSlotOrder = matching.toSortedArray();
+            List<Training> trainings = new ArrayList<>(inSlotOrder.length);
+            for (int slot : inSlotOrder) {
+                if (matches.test(slot)) {
+                    trainings.add(read(slot));
+                }
+            }
+            return trainings;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean isBetween(int slot, Date from, Date to) {
+        long time = slotLong(slot, DATE_OFFSET);
+        return time >= from.getTime() && time < to.getTime();
+    }
+
+    //Has to be called under the write lock. Returns the slot, reading it back gives what was actually kept.
+    private int write(Training training) {
+        TrainingKey key = training.getKey();
+        Integer slot = slots.get(key);
+        if (slot == null) {
+            slot = allocate();
+        } else {
+            unindex(slot);
+        }
+
+        MappedByteBuffer segment = segments.get(slot / slotsPerSegment);
+        int offset = (slot % slotsPerSegment) * SLOT_SIZE;
+        TrainingType trainingType = training.getTrainingType();
+        Instant trainingDate = training.getTrainingInstant();
+        Duration trainingDuration = training.getTrainingDuration();
+        segment.putInt(offset + TRAINEE_OFFSET, dictionary.encode(training.getTraineeId()));
+        segment.putInt(offset + TRAINER_OFFSET, dictionary.encode(training.getTrainerId()));
+        segment.putInt(offset + TRAINER_NAME_OFFSET, dictionary.encode(training.getTrainerName()));
+        segment.putInt(offset + TYPE_OFFSET, trainingType == null ? NO_TYPE : trainingType.getCode());
+        segment.putLong(offset + DATE_OFFSET, trainingDate == null ? NO_VALUE : trainingDate.toEpochMilli());
+        segment.putLong(offset + DURATION_OFFSET,
+                trainingDuration == null ? NO_VALUE : trainingDuration.getSeconds());
+
+        slots.put(key, slot);
+        index(slot);
+        return slot;
+    }
+
+    private void index(int slot) {
+        int traineeCode = slotInt(slot, TRAINEE_OFFSET);
+        int trainerCode = slotInt(slot, TRAINER_OFFSET);
+        int typeCode = slotInt(slot, TYPE_OFFSET);
+        if (traineeCode != StringDictionary.NULL_CODE) {
+            byTraineeCode.computeIfAbsent(traineeCode, code -> new SlotList()).add(slot);
+        }
+        if (trainerCode != StringDictionary.NULL_CODE) {
+            byTrainerCode.computeIfAbsent(trainerCode, code -> new SlotList()).add(slot);
+        }
+        if (typeCode != NO_TYPE) {
+            byTypeCode.computeIfAbsent(typeCode, code -> new BitSet()).set(slot);
+        }
+    }
+
+    private void unindex(int slot) {
+        byTraineeCode.computeIfPresent(slotInt(slot, TRAINEE_OFFSET), (code, list) -> list.remove(slot) ? list : null);
+        byTrainerCode.computeIfPresent(slotInt(slot, TRAINER_OFFSET), (code, list) -> list.remove(slot) ? list : null);
+        byTypeCode.computeIfPresent(slotInt(slot, TYPE_OFFSET), (code, bits) -> {
+            bits.clear(slot);
+            return bits.isEmpty() ? null : bits;
+        });
+    }
+
+    private Training read(int slot) {
+        MappedByteBuffer segment = segments.get(slot / slotsPerSegment);
+        int offset = (slot % slotsPerSegment) * SLOT_SIZE;
+        int trainingTypeCode = segment.getInt(offset + TYPE_OFFSET);
+        long trainingDate = segment.getLong(offset + DATE_OFFSET);
+        long trainingDuration = segment.getLong(offset + DURATION_OFFSET);
+
+        return Training.builder()
+                .traineeId(dictionary.decode(segment.getInt(offset + TRAINEE_OFFSET)))
+                .trainerId(dictionary.decode(segment.getInt(offset + TRAINER_OFFSET)))
+                .trainerName(dictionary.decode(segment.getInt(offset + TRAINER_NAME_OFFSET)))
+                .trainingType(trainingTypeCode == NO_TYPE ? null : TrainingType.ofCode(trainingTypeCode))
+                .trainingDate(trainingDate == NO_VALUE ? null : Instant.ofEpochMilli(trainingDate))
+                .trainingDuration(trainingDuration == NO_VALUE ? null : Duration.ofSeconds(trainingDuration))
+                .build();
+    }
+
+    private int slotInt(int slot, int fieldOffset) {
+        return segments.get(slot / slotsPerSegment).getInt((slot % slotsPerSegment) * SLOT_SIZE + fieldOffset);
+    }
+
+    private long slotLong(int slot, int fieldOffset) {
+        return segments.get(slot / slotsPerSegment).getLong((slot % slotsPerSegment) * SLOT_SIZE + fieldOffset);
+    }
+
+    private int allocate() {
+        if (freeSlotCount > 0) {
+            return freeSlots[--freeSlotCount];
+        }
+        if (usedSlots == segments.size() * slotsPerSegment) {
+            addSegment();
+        }
+        return usedSlots++;
+    }
+
+    private void release(int slot) {
+        unindex(slot);
+        int offset = (slot % slotsPerSegment) * SLOT_SIZE;
+        segments.get(slot / slotsPerSegment).putInt(offset + TRAINEE_OFFSET, FREE_SLOT);
+        if (freeSlotCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlots.length * 2);
+        }
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+    private void addSegment() {
+        long segmentSize = (long) slotsPerSegment * SLOT_SIZE;
+        try {
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, segments.size() * segmentSize, segmentSize));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to grow off-heap trainings file " + file, e);
+        }
+    }
+
+    //Growable int list of slots; removal swaps in the last one, so order is restored on read.
+    private static final class SlotList {
+        private int[] slots = new int[4];
+        private int size;
+
+        private void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            slots[size++] = slot;
+        }
+
+        //Returns false once the list is empty.
+        private boolean remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    slots[i] = slots[--size];
+                    break;
+                }
+            }
+            return size > 0;
+        }
+
+        private int[] toSortedArray() {
+            int[] sorted = Arrays.copyOf(slots, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
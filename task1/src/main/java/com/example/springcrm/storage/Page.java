@@ -0,0 +1,67 @@
+package com.example.springcrm.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Function;
+
+//One page of a key ordered listing. Cursor is opaque for clients and is null on the last page.
+public class Page<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    //Reads up to size values for keys in order, skipping keys removed in the meantime.
+    static <K, T> Page<T> of(Iterator<K> keys, Function<K, T> lookup, int size, Function<K, String> keyToString) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Page size must be positive: " + size);
+        }
+
+        List<T> items = new ArrayList<>(size);
+        K lastKey = null;
+        while (items.size() < size && keys.hasNext()) {
+            K key = keys.next();
+            T value = lookup.apply(key);
+            if (value != null) {
+                items.add(value);
+                lastKey = key;
+            }
+        }
+
+        String nextCursor = keys.hasNext() && lastKey != null
+                ? encodeCursor(keyToString.apply(lastKey))
+                : null;
+        return new Page<>(List.copyOf(items), nextCursor);
+    }
+
+    static String encodeCursor(String key) {
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String decodeCursor(String cursor) throws IllegalArgumentException {
+        if (cursor == null) {
+            return null;
+        }
+        return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.springcrm.storage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+//Immutable point-in-time copy of storage values shared by all readers until the next write.
+//Reads between writes are O(1), a write only bumps the version, so writers never wait for readers.
+public class SnapshotView<T> {
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot<T> snapshot;
+
+    //Has to be called after the storage has been changed.
+    public void invalidate() {
+        version.incrementAndGet();
+    }
+
+    public List<T> get(Supplier<Collection<T>> values) {
+        long currentVersion = version.get();
+        Snapshot<T> current = snapshot;
+        if (current != null && current.version == currentVersion) {
+            return current.values;
+        }
+
+        List<T> copy = List.copyOf(values.get());
+        //A write during the copy leaves the version changed, such copy is returned but not shared.
+        if (version.get() == currentVersion) {
+            snapshot = new Snapshot<>(currentVersion, copy);
+        }
+        return copy;
+    }
+
+    private static final class Snapshot<T> {
+        private final long version;
+        private final List<T> values;
+
+        private Snapshot(long version, List<T> values) {
+            this.version = version;
+            this.values = values;
+        }
+    }
+}
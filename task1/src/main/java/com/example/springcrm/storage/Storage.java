@@ -1,6 +1,8 @@
 package com.example.springcrm.storage;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface Storage<T> {
     static boolean LOADING_FROM_FILE = false;
@@ -11,13 +13,38 @@ public interface Storage<T> {
 
     T get(T value);
 
-    void update(T newValue);
+    //Stores value only if its key is not taken yet. Returns the stored value (what storage kept of it), null if the key was taken.
+    T create(T newValue);
 
-    void delete(T value);
+    //Returns the stored value together with the replaced one.
+    Change<T> update(T newValue);
+
+    //Returns the removed value, null if there was none.
+    T delete(T value);
+
+    //Stores all values or none of them if at least one key is taken or repeated.
+    //Returns the stored values in the given order, null if nothing was stored.
+    List<T> createAll(Collection<T> newValues);
+
+    //Returns one change per value, in the given order.
+    List<Change<T>> updateAll(Collection<T> newValues);
+
+    //Returns the removed values.
+    List<T> deleteAll(Collection<T> values);
 
     List<T> getAll();
 
+    int size();
+
+    //Values ordered by key, starting after the cursor of the previous page, null cursor means the first page.
+    Page<T> getPage(String cursor, int size);
+
+    //Lazily walks values in key order without copying the whole storage.
+    Stream<T> stream();
+
     String getNextId();
 
+    List<String> getNextIds(int count);
+
     void cleanAll();
 }
@@ -1,61 +1,107 @@
 package com.example.springcrm.storage;
 
 import com.example.springcrm.model.Trainee;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.example.springcrm.persistence.Snapshot;
+import com.example.springcrm.persistence.SnapshotManager;
+import com.example.springcrm.persistence.TraineeSnapshotCodec;
+import com.example.springcrm.persistence.WriteAheadLog;
+import com.example.springcrm.persistence.WriteAheadLogFactory;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 @Repository("traineeStorage")
 public class TraineeStorage implements Storage<Trainee> {
     private static final String FILE_PATH = "trainees.json";
+    private static final String PERSISTENCE_NAME = "trainees";
+    private static final TraineeSnapshotCodec SNAPSHOT_CODEC = new TraineeSnapshotCodec();
 
     private final Map<String, Trainee> trainees;
+    private final IdSequence ids;
+    private final SnapshotView<Trainee> snapshotView = new SnapshotView<>();
+    //Single writes share the read lock, batches take the write lock so they are applied as a whole.
+    private final ReentrantReadWriteLock batchLock = new ReentrantReadWriteLock();
+    private final UsernameIndex usernameIndex = new UsernameIndex();
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JsonSeedLoader seedLoader = new JsonSeedLoader();
+    private WriteAheadLogFactory writeAheadLogFactory;
+    //Set once the log has been replayed, changes made before (seed, replay itself) are not logged.
+    private volatile WriteAheadLog<Trainee> writeAheadLog;
+    private SnapshotManager snapshotManager;
+    private Snapshot<Trainee> lastSnapshot;
     private static Logger logger = LoggerFactory.getLogger(TraineeStorage.class);
 
-    @Autowired
     public TraineeStorage(Map<String, Trainee> trainees) {
+        this(trainees, new IdSequence());
+    }
+
+    @Autowired
+    public TraineeStorage(Map<String, Trainee> trainees, @Qualifier("traineeIds") IdSequence ids) {
         this.trainees = trainees;
+        this.ids = ids;
+        trainees.keySet().forEach(usernameIndex::add);
+        trainees.values().forEach(trainee -> ids.advanceTo(trainee.getUserId()));
         logger.info("Created traineeStorage instance");
     }
 
+    @Autowired(required = false)
+    public void setSeedLoader(JsonSeedLoader seedLoader) {
+        this.seedLoader = seedLoader;
+    }
+
+    @Autowired(required = false)
+    public void setWriteAheadLogFactory(WriteAheadLogFactory writeAheadLogFactory) {
+        this.writeAheadLogFactory = writeAheadLogFactory;
+    }
+
+    @Autowired(required = false)
+    public void setSnapshotManager(SnapshotManager snapshotManager) {
+        this.snapshotManager = snapshotManager;
+    }
+
 
     @Override
     @PostConstruct
     public void init() {
-        if (LOADING_FROM_FILE) {
-            try {
-                logger.info("Loading trainees from resources: " + FILE_PATH);
-
-                Resource resource = new ClassPathResource(FILE_PATH);
-                if (!resource.exists()) {
-                    throw new RuntimeException("File not found in resources: " + FILE_PATH);
-                }
+        Snapshot<Trainee> snapshot = snapshotManager == null
+                ? null
+                : snapshotManager.load(PERSISTENCE_NAME, SNAPSHOT_CODEC);
+        if (snapshot != null) {
+            logger.info("Loading {} trainees from snapshot", snapshot.getValues().size());
+            snapshot.getValues().forEach(this::update);
+            ids.advanceTo(snapshot.getIdHighWaterMark());
+        } else if (LOADING_FROM_FILE) {
+            logger.info("Loading trainees from resources: " + FILE_PATH);
+            seedLoader.load(FILE_PATH, Trainee.class, batch -> batch.forEach(this::update));
+        }
 
-                try (InputStream inputStream = resource.getInputStream()) {
-                    List<Trainee> trainees = objectMapper.readValue(inputStream, new TypeReference<List<Trainee>>() {
-                    });
-                    for (Trainee trainee : trainees) {
-                        update(trainee);
-                    }
-                }
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to load trainees from file: " + FILE_PATH, e);
-            }
+        if (writeAheadLogFactory != null && writeAheadLogFactory.isEnabled()) {
+            WriteAheadLog<Trainee> log = writeAheadLogFactory.open(PERSISTENCE_NAME, Trainee.class);
+            long fromPosition = snapshot == null ? 0 : snapshot.getLogPosition();
+            long replayed = log.replay(fromPosition, this::update, this::delete, this::cleanAll);
+            logger.info("Replayed {} trainee changes from write-ahead log", replayed);
+            writeAheadLog = log;
         }
 
+        if (snapshotManager != null && snapshotManager.isEnabled()) {
+            snapshotManager.register(PERSISTENCE_NAME, this::writeSnapshot);
+        }
     }
 
     @Override
@@ -69,44 +115,294 @@ public class TraineeStorage implements Storage<Trainee> {
     }
 
     @Override
-    public void update(Trainee trainee) throws IllegalArgumentException {
-        trainees.put(getKey(trainee), trainee.clone());
+    public Trainee create(Trainee trainee) {
+        batchLock.readLock().lock();
+        try {
+            Trainee stored = trainee.toImmutable();
+            ids.advanceTo(trainee.getUserId());
+            //Index is changed inside compute* so it stays consistent with the map for this key.
+            boolean created = trainees.computeIfAbsent(getKey(trainee), key -> {
+                usernameIndex.add(key);
+                logPut(stored);
+                return stored;
+            }) == stored;
+            if (created) {
+                snapshotView.invalidate();
+                awaitLogged();
+            }
+            return created ? stored : null;
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Change<Trainee> update(Trainee trainee) throws IllegalArgumentException {
+        batchLock.readLock().lock();
+        try {
+            Trainee stored = trainee.toImmutable();
+            ids.advanceTo(trainee.getUserId());
+            AtomicReference<Trainee> replaced = new AtomicReference<>();
+            trainees.compute(getKey(trainee), (key, oldValue) -> {
+                replaced.set(oldValue);
+                usernameIndex.add(key);
+                logPut(stored);
+                return stored;
+            });
+            snapshotView.invalidate();
+            awaitLogged();
+            return new Change<>(stored, replaced.get());
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Trainee delete(Trainee trainee) throws IllegalArgumentException {
+        batchLock.readLock().lock();
+        try {
+            AtomicReference<Trainee> removed = new AtomicReference<>();
+            trainees.computeIfPresent(getKey(trainee), (key, oldValue) -> {
+                removed.set(oldValue);
+                usernameIndex.remove(key);
+                logDelete(oldValue);
+                return null;
+            });
+            snapshotView.invalidate();
+            awaitLogged();
+            return removed.get();
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Trainee> createAll(Collection<Trainee> newTrainees) {
+        List<Trainee> created = new ArrayList<>(newTrainees.size());
+        batchLock.writeLock().lock();
+        try {
+            Set<String> keys = new HashSet<>();
+            for (Trainee trainee : newTrainees) {
+                String key = getKey(trainee);
+                if (!keys.add(key) || trainees.containsKey(key)) {
+                    return null;
+                }
+            }
+            for (Trainee trainee : newTrainees) {
+                created.add(create(trainee));
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        awaitLogged();
+        return created;
+    }
+
+    @Override
+    public List<Change<Trainee>> updateAll(Collection<Trainee> newTrainees) {
+        List<Change<Trainee>> changes = new ArrayList<>(newTrainees.size());
+        batchLock.writeLock().lock();
+        try {
+            for (Trainee trainee : newTrainees) {
+                changes.add(update(trainee));
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        awaitLogged();
+        return changes;
+    }
+
+    //Replaces the stored trainee only if it still has the version of the given one, the stored copy gets the next version.
+    //Returns that copy, null if the trainee was changed in between. A free key has nothing to conflict with and is taken.
+    public Trainee compareAndUpdate(Trainee trainee) {
+        batchLock.readLock().lock();
+        try {
+            Trainee stored = trainee.withVersion(trainee.getVersion() + 1);
+            ids.advanceTo(trainee.getUserId());
+            Trainee current = trainees.compute(getKey(trainee), (key, oldValue) -> {
+                if (oldValue != null && oldValue.getVersion() != trainee.getVersion()) {
+                    return oldValue;
+                }
+                usernameIndex.add(key);
+                logPut(stored);
+                return stored;
+            });
+            if (current != stored) {
+                return null;
+            }
+            snapshotView.invalidate();
+            awaitLogged();
+            return stored;
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
 
+    //All trainees or none of them: returns the stored copies, null if any of them was changed in between or is repeated.
+    public List<Trainee> compareAndUpdateAll(Collection<Trainee> newTrainees) {
+        List<Trainee> updated = new ArrayList<>(newTrainees.size());
+        Set<String> keys = new HashSet<>();
+        batchLock.writeLock().lock();
+        try {
+            for (Trainee trainee : newTrainees) {
+                Trainee current = get(trainee);
+                if (!keys.add(getKey(trainee))
+                        || current != null && current.getVersion() != trainee.getVersion()) {
+                    return null;
+                }
+            }
+            for (Trainee trainee : newTrainees) {
+                updated.add(compareAndUpdate(trainee));
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        return updated;
     }
 
     @Override
-    public void delete(Trainee trainee) throws IllegalArgumentException {
-        trainees.remove(getKey(trainee));
+    public List<Trainee> deleteAll(Collection<Trainee> traineesToDelete) {
+        List<Trainee> removed = new ArrayList<>();
+        batchLock.writeLock().lock();
+        try {
+            for (Trainee trainee : traineesToDelete) {
+                Trainee oldValue = delete(trainee);
+                if (oldValue != null) {
+                    removed.add(oldValue);
+                }
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        awaitLogged();
+        return removed;
     }
 
     @Override
     public List<Trainee> getAll() {
-        return trainees
-                .values()
+        return snapshotView.get(trainees::values);
+    }
+
+    @Override
+    public int size() {
+        return trainees.size();
+    }
+
+    @Override
+    public Page<Trainee> getPage(String cursor, int size) {
+        String lastKey = Page.decodeCursor(cursor);
+        NavigableSet<String> keys = lastKey == null ? usernameIndex.all() : usernameIndex.after(lastKey);
+        return Page.of(keys.iterator(), trainees::get, size, key -> key);
+    }
+
+    @Override
+    public Stream<Trainee> stream() {
+        return usernameIndex.all()
                 .stream()
-                .toList();
+                .map(trainees::get)
+                .filter(Objects::nonNull);
     }
 
     @Override
     public String getNextId() {
-        return "" + (trainees.size() + 1);
+        return Long.toString(ids.next());
+    }
+
+    @Override
+    public List<String> getNextIds(int count) {
+        long firstId = ids.reserve(count);
+        return LongStream.range(firstId, firstId + count)
+                .mapToObj(Long::toString)
+                .toList();
     }
 
     @Override
     public void cleanAll() {
-        trainees.clear();
+        //Like a batch: no single write can land between the CLEAR record and the clear, nor a snapshot in between.
+        batchLock.writeLock().lock();
+        try {
+            logClear();
+            trainees.clear();
+            usernameIndex.clear();
+            snapshotView.invalidate();
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        awaitLogged();
     }
 
     public List<Trainee> getAllByUsername(String usernameSubstring) {
-        return trainees
-                .values()
-                .stream()
-                .filter(trainee ->
-                        trainee.getUsername()
-                                .contains(usernameSubstring))
+        return getAllByKeys(usernameIndex.containing(usernameSubstring));
+    }
+
+    public List<Trainee> getAllByUsernamePrefix(String usernamePrefix) {
+        return getAllByKeys(usernameIndex.withPrefix(usernamePrefix));
+    }
+
+    private List<Trainee> getAllByKeys(List<String> keys) {
+        return keys.stream()
+                .map(trainees::get)
+                .filter(Objects::nonNull)
                 .toList();
     }
 
+    private void writeSnapshot() {
+        Snapshot<Trainee> snapshot;
+        //Write lock waits for in-flight changes, so the values match the log position.
+        batchLock.writeLock().lock();
+        try {
+            List<Trainee> values = getAll();
+            long idHighWaterMark = ids.getHighWaterMark();
+            //getAll() returns the same list until something changes.
+            if (lastSnapshot != null
+                    && lastSnapshot.getValues() == values
+                    && lastSnapshot.getIdHighWaterMark() == idHighWaterMark) {
+                return;
+            }
+            WriteAheadLog<Trainee> log = writeAheadLog;
+            snapshot = new Snapshot<>(values, log == null ? 0 : log.position(), idHighWaterMark);
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        snapshotManager.write(PERSISTENCE_NAME, SNAPSHOT_CODEC, snapshot);
+        lastSnapshot = snapshot;
+        //The snapshot is on disk, the records it covers are no longer needed to restore.
+        WriteAheadLog<Trainee> log = writeAheadLog;
+        if (log != null) {
+            log.discardBefore(snapshot.getLogPosition());
+        }
+    }
+
+    private void logPut(Trainee trainee) {
+        WriteAheadLog<Trainee> log = writeAheadLog;
+        if (log != null) {
+            log.appendPut(trainee);
+        }
+    }
+
+    private void logDelete(Trainee trainee) {
+        WriteAheadLog<Trainee> log = writeAheadLog;
+        if (log != null) {
+            log.appendDelete(trainee);
+        }
+    }
+
+    private void logClear() {
+        WriteAheadLog<Trainee> log = writeAheadLog;
+        if (log != null) {
+            log.appendClear();
+        }
+    }
+
+    //Changes inside a batch are awaited once the batch is applied, so the batch shares one fsync.
+    private void awaitLogged() {
+        WriteAheadLog<Trainee> log = writeAheadLog;
+        if (log != null && !batchLock.isWriteLockedByCurrentThread()) {
+            log.awaitDurable(log.lastSequence());
+        }
+    }
+
     private static String getKey(Trainee trainee) {
         return trainee.getUsername();
     }
@@ -1,57 +1,105 @@
 package com.example.springcrm.storage;
 
 import com.example.springcrm.model.Trainer;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.example.springcrm.persistence.Snapshot;
+import com.example.springcrm.persistence.SnapshotManager;
+import com.example.springcrm.persistence.TrainerSnapshotCodec;
+import com.example.springcrm.persistence.WriteAheadLog;
+import com.example.springcrm.persistence.WriteAheadLogFactory;
 import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Repository;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 @Repository("trainerStorage")
 public class TrainerStorage implements Storage<Trainer> {
     private static final String FILE_PATH = "trainers.json";
+    private static final String PERSISTENCE_NAME = "trainers";
+    private static final TrainerSnapshotCodec SNAPSHOT_CODEC = new TrainerSnapshotCodec();
 
     private final Map<String, Trainer> trainers;
+    private final IdSequence ids;
+    private final SnapshotView<Trainer> snapshotView = new SnapshotView<>();
+    //Single writes share the read lock, batches take the write lock so they are applied as a whole.
+    private final ReentrantReadWriteLock batchLock = new ReentrantReadWriteLock();
+    private final UsernameIndex usernameIndex = new UsernameIndex();
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JsonSeedLoader seedLoader = new JsonSeedLoader();
+    private WriteAheadLogFactory writeAheadLogFactory;
+    //Set once the log has been replayed, changes made before (seed, replay itself) are not logged.
+    private volatile WriteAheadLog<Trainer> writeAheadLog;
+    private SnapshotManager snapshotManager;
+    private Snapshot<Trainer> lastSnapshot;
     private static Logger logger = LoggerFactory.getLogger(TrainerStorage.class);
 
-    @Autowired
     public TrainerStorage(Map<String, Trainer> trainers) {
+        this(trainers, new IdSequence());
+    }
+
+    @Autowired
+    public TrainerStorage(Map<String, Trainer> trainers, @Qualifier("trainerIds") IdSequence ids) {
         this.trainers = trainers;
+        this.ids = ids;
+        trainers.keySet().forEach(usernameIndex::add);
+        trainers.values().forEach(trainer -> ids.advanceTo(trainer.getUserId()));
         logger.info("Created trainerStorage instance");
     }
 
+    @Autowired(required = false)
+    public void setSeedLoader(JsonSeedLoader seedLoader) {
+        this.seedLoader = seedLoader;
+    }
+
+    @Autowired(required = false)
+    public void setWriteAheadLogFactory(WriteAheadLogFactory writeAheadLogFactory) {
+        this.writeAheadLogFactory = writeAheadLogFactory;
+    }
+
+    @Autowired(required = false)
+    public void setSnapshotManager(SnapshotManager snapshotManager) {
+        this.snapshotManager = snapshotManager;
+    }
+
     @Override
     @PostConstruct
     public void init() {
-        if (LOADING_FROM_FILE) {
-            try {
-                logger.info("Loading trainees from resources: " + FILE_PATH);
+        Snapshot<Trainer> snapshot = snapshotManager == null
+                ? null
+                : snapshotManager.load(PERSISTENCE_NAME, SNAPSHOT_CODEC);
+        if (snapshot != null) {
+            logger.info("Loading {} trainers from snapshot", snapshot.getValues().size());
+            snapshot.getValues().forEach(this::update);
+            ids.advanceTo(snapshot.getIdHighWaterMark());
+        } else if (LOADING_FROM_FILE) {
+            logger.info("Loading trainers from resources: " + FILE_PATH);
+            seedLoader.load(FILE_PATH, Trainer.class, batch -> batch.forEach(this::update));
+        }
 
-                Resource resource = new ClassPathResource(FILE_PATH);
-                if (!resource.exists()) {
-                    throw new RuntimeException("File not found in resources: " + FILE_PATH);
-                }
+        if (writeAheadLogFactory != null && writeAheadLogFactory.isEnabled()) {
+            WriteAheadLog<Trainer> log = writeAheadLogFactory.open(PERSISTENCE_NAME, Trainer.class);
+            long fromPosition = snapshot == null ? 0 : snapshot.getLogPosition();
+            long replayed = log.replay(fromPosition, this::update, this::delete, this::cleanAll);
+            logger.info("Replayed {} trainer changes from write-ahead log", replayed);
+            writeAheadLog = log;
+        }
 
-                try (InputStream inputStream = resource.getInputStream()) {
-                    List<Trainer> trainers = objectMapper.readValue(inputStream, new TypeReference<List<Trainer>>() { });
-                    for (Trainer trainee : trainers) {
-                        update(trainee);
-                    }
-                }
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to load trainers from file: " + FILE_PATH, e);
-            }
+        if (snapshotManager != null && snapshotManager.isEnabled()) {
+            snapshotManager.register(PERSISTENCE_NAME, this::writeSnapshot);
         }
     }
 
@@ -66,40 +114,295 @@ public class TrainerStorage implements Storage<Trainer> {
     }
 
     @Override
-    public void update(Trainer trainer) throws IllegalArgumentException {
-        trainers.put(getKey(trainer), trainer.clone());
+    public Trainer create(Trainer trainer) {
+        batchLock.readLock().lock();
+        try {
+            Trainer stored = trainer.toImmutable();
+            ids.advanceTo(trainer.getUserId());
+            //Index is changed inside compute* so it stays consistent with the map for this key.
+            boolean created = trainers.computeIfAbsent(getKey(trainer), key -> {
+                usernameIndex.add(key);
+                logPut(stored);
+                return stored;
+            }) == stored;
+            if (created) {
+                snapshotView.invalidate();
+                awaitLogged();
+            }
+            return created ? stored : null;
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Change<Trainer> update(Trainer trainer) throws IllegalArgumentException {
+        batchLock.readLock().lock();
+        try {
+            Trainer stored = trainer.toImmutable();
+            ids.advanceTo(trainer.getUserId());
+            AtomicReference<Trainer> replaced = new AtomicReference<>();
+            trainers.compute(getKey(trainer), (key, oldValue) -> {
+                replaced.set(oldValue);
+                usernameIndex.add(key);
+                logPut(stored);
+                return stored;
+            });
+            snapshotView.invalidate();
+            awaitLogged();
+            return new Change<>(stored, replaced.get());
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Trainer delete(Trainer trainer) throws IllegalArgumentException {
+        batchLock.readLock().lock();
+        try {
+            AtomicReference<Trainer> removed = new AtomicReference<>();
+            trainers.computeIfPresent(getKey(trainer), (key, oldValue) -> {
+                removed.set(oldValue);
+                usernameIndex.remove(key);
+                logDelete(oldValue);
+                return null;
+            });
+            snapshotView.invalidate();
+            awaitLogged();
+            return removed.get();
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Trainer> createAll(Collection<Trainer> newTrainers) {
+        List<Trainer> created = new ArrayList<>(newTrainers.size());
+        batchLock.writeLock().lock();
+        try {
+            Set<String> keys = new HashSet<>();
+            for (Trainer trainer : newTrainers) {
+                String key = getKey(trainer);
+                if (!keys.add(key) || trainers.containsKey(key)) {
+                    return null;
+                }
+            }
+            for (Trainer trainer : newTrainers) {
+                created.add(create(trainer));
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        awaitLogged();
+        return created;
+    }
+
+    @Override
+    public List<Change<Trainer>> updateAll(Collection<Trainer> newTrainers) {
+        List<Change<Trainer>> changes = new ArrayList<>(newTrainers.size());
+        batchLock.writeLock().lock();
+        try {
+            for (Trainer trainer : newTrainers) {
+                changes.add(update(trainer));
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        awaitLogged();
+        return changes;
+    }
+
+    //Replaces the stored trainer only if it still has the version of the given one, the stored copy gets the next version.
+    //Returns that copy, null if the trainer was changed in between. A free key has nothing to conflict with and is taken.
+    public Trainer compareAndUpdate(Trainer trainer) {
+        batchLock.readLock().lock();
+        try {
+            Trainer stored = trainer.withVersion(trainer.getVersion() + 1);
+            ids.advanceTo(trainer.getUserId());
+            Trainer current = trainers.compute(getKey(trainer), (key, oldValue) -> {
+                if (oldValue != null && oldValue.getVersion() != trainer.getVersion()) {
+                    return oldValue;
+                }
+                usernameIndex.add(key);
+                logPut(stored);
+                return stored;
+            });
+            if (current != stored) {
+                return null;
+            }
+            snapshotView.invalidate();
+            awaitLogged();
+            return stored;
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    //All trainers or none of them: returns the stored copies, null if any of them was changed in between or is repeated.
+    public List<Trainer> compareAndUpdateAll(Collection<Trainer> newTrainers) {
+        List<Trainer> updated = new ArrayList<>(newTrainers.size());
+        Set<String> keys = new HashSet<>();
+        batchLock.writeLock().lock();
+        try {
+            for (Trainer trainer : newTrainers) {
+                Trainer current = get(trainer);
+                if (!keys.add(getKey(trainer))
+                        || current != null && current.getVersion() != trainer.getVersion()) {
+                    return null;
+                }
+            }
+            for (Trainer trainer : newTrainers) {
+                updated.add(compareAndUpdate(trainer));
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        return updated;
     }
 
     @Override
-    public void delete(Trainer trainer) throws IllegalArgumentException {
-        trainers.remove(getKey(trainer));
+    public List<Trainer> deleteAll(Collection<Trainer> trainersToDelete) {
+        List<Trainer> removed = new ArrayList<>();
+        batchLock.writeLock().lock();
+        try {
+            for (Trainer trainer : trainersToDelete) {
+                Trainer oldValue = delete(trainer);
+                if (oldValue != null) {
+                    removed.add(oldValue);
+                }
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        awaitLogged();
+        return removed;
     }
 
     @Override
     public List<Trainer> getAll() {
-        return trainers.values().stream().toList();
+        return snapshotView.get(trainers::values);
+    }
+
+    @Override
+    public int size() {
+        return trainers.size();
+    }
+
+    @Override
+    public Page<Trainer> getPage(String cursor, int size) {
+        String lastKey = Page.decodeCursor(cursor);
+        NavigableSet<String> keys = lastKey == null ? usernameIndex.all() : usernameIndex.after(lastKey);
+        return Page.of(keys.iterator(), trainers::get, size, key -> key);
+    }
+
+    @Override
+    public Stream<Trainer> stream() {
+        return usernameIndex.all()
+                .stream()
+                .map(trainers::get)
+                .filter(Objects::nonNull);
     }
 
     @Override
     public String getNextId() {
-        return "" + (trainers.size() + 1);
+        return Long.toString(ids.next());
+    }
+
+    @Override
+    public List<String> getNextIds(int count) {
+        long firstId = ids.reserve(count);
+        return LongStream.range(firstId, firstId + count)
+                .mapToObj(Long::toString)
+                .toList();
     }
 
     @Override
     public void cleanAll() {
-        trainers.clear();
+        //Like a batch: no single write can land between the CLEAR record and the clear, nor a snapshot in between.
+        batchLock.writeLock().lock();
+        try {
+            logClear();
+            trainers.clear();
+            usernameIndex.clear();
+            snapshotView.invalidate();
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        awaitLogged();
     }
 
 
     public List<Trainer> getAllByUsername(String usernameSubstring) {
-        return trainers.values().stream()
-                .filter(trainer -> trainer
-                        .getUsername()
-                        .contains(usernameSubstring)
-                )
+        return getAllByKeys(usernameIndex.containing(usernameSubstring));
+    }
+
+    public List<Trainer> getAllByUsernamePrefix(String usernamePrefix) {
+        return getAllByKeys(usernameIndex.withPrefix(usernamePrefix));
+    }
+
+    private List<Trainer> getAllByKeys(List<String> keys) {
+        return keys.stream()
+                .map(trainers::get)
+                .filter(Objects::nonNull)
                 .toList();
     }
 
+    private void writeSnapshot() {
+        Snapshot<Trainer> snapshot;
+        //Write lock waits for in-flight changes, so the values match the log position.
+        batchLock.writeLock().lock();
+        try {
+            List<Trainer> values = getAll();
+            long idHighWaterMark = ids.getHighWaterMark();
+            //getAll() returns the same list until something changes.
+            if (lastSnapshot != null
+                    && lastSnapshot.getValues() == values
+                    && lastSnapshot.getIdHighWaterMark() == idHighWaterMark) {
+                return;
+            }
+            WriteAheadLog<Trainer> log = writeAheadLog;
+            snapshot = new Snapshot<>(values, log == null ? 0 : log.position(), idHighWaterMark);
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        snapshotManager.write(PERSISTENCE_NAME, SNAPSHOT_CODEC, snapshot);
+        lastSnapshot = snapshot;
+        //The snapshot is on disk, the records it covers are no longer needed to restore.
+        WriteAheadLog<Trainer> log = writeAheadLog;
+        if (log != null) {
+            log.discardBefore(snapshot.getLogPosition());
+        }
+    }
+
+    private void logPut(Trainer trainer) {
+        WriteAheadLog<Trainer> log = writeAheadLog;
+        if (log != null) {
+            log.appendPut(trainer);
+        }
+    }
+
+    private void logDelete(Trainer trainer) {
+        WriteAheadLog<Trainer> log = writeAheadLog;
+        if (log != null) {
+            log.appendDelete(trainer);
+        }
+    }
+
+    private void logClear() {
+        WriteAheadLog<Trainer> log = writeAheadLog;
+        if (log != null) {
+            log.appendClear();
+        }
+    }
+
+    //Changes inside a batch are awaited once the batch is applied, so the batch shares one fsync.
+    private void awaitLogged() {
+        WriteAheadLog<Trainer> log = writeAheadLog;
+        if (log != null && !batchLock.isWriteLockedByCurrentThread()) {
+            log.awaitDurable(log.lastSequence());
+        }
+    }
+
     private static String getKey(Trainer trainer) {
         return trainer.getUsername();
     }
@@ -0,0 +1,95 @@
+package com.example.springcrm.storage;
+
+import com.example.springcrm.model.Training;
+import com.example.springcrm.model.TrainingKey;
+import com.example.springcrm.model.TrainingType;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+//Secondary indexes of trainings storage: trainee, trainer and type are hashed, date is sorted.
+//Values are storage keys, the storage keeps them in sync inside its compute calls.
+public class TrainingIndex {
+    private final Map<String, Set<TrainingKey>> byTraineeId = new ConcurrentHashMap<>();
+    private final Map<String, Set<TrainingKey>> byTrainerId = new ConcurrentHashMap<>();
+    private final Map<TrainingType, Set<TrainingKey>> byTrainingType = new ConcurrentHashMap<>();
+    //Keys are ordered by time first, so the set itself is the date index.
+    private final NavigableSet<TrainingKey> byTrainingDate = new ConcurrentSkipListSet<>();
+
+    public void add(TrainingKey key, Training training) {
+        addTo(byTraineeId, training.getTraineeId(), key);
+        addTo(byTrainerId, training.getTrainerId(), key);
+        addTo(byTrainingType, training.getTrainingType(), key);
+        byTrainingDate.add(key);
+    }
+
+    public void remove(TrainingKey key, Training training) {
+        removeFrom(byTraineeId, training.getTraineeId(), key);
+        removeFrom(byTrainerId, training.getTrainerId(), key);
+        removeFrom(byTrainingType, training.getTrainingType(), key);
+        byTrainingDate.remove(key);
+    }
+
+    public void clear() {
+        byTraineeId.clear();
+        byTrainerId.clear();
+        byTrainingType.clear();
+        byTrainingDate.clear();
+    }
+
+    //All keys ordered by time, a live view.
+    public NavigableSet<TrainingKey> getAll() {
+        return Collections.unmodifiableNavigableSet(byTrainingDate);
+    }
+
+    public NavigableSet<TrainingKey> getAfter(TrainingKey key) {
+        return Collections.unmodifiableNavigableSet(byTrainingDate.tailSet(key, false));
+    }
+
+    public Set<TrainingKey> getByTraineeId(String traineeId) {
+        return byTraineeId.getOrDefault(traineeId, Set.of());
+    }
+
+    public Set<TrainingKey> getByTrainerId(String trainerId) {
+        return byTrainerId.getOrDefault(trainerId, Set.of());
+    }
+
+    public Set<TrainingKey> getByTrainingType(TrainingType trainingType) {
+        return byTrainingType.getOrDefault(trainingType, Set.of());
+    }
+
+    //From is inclusive, to is exclusive.
+    public NavigableSet<TrainingKey> getBetween(Date from, Date to) {
+        return byTrainingDate.subSet(
+                TrainingKey.first(from.getTime()), true,
+                TrainingKey.first(to.getTime()), false);
+    }
+
+    private static <V> void addTo(Map<V, Set<TrainingKey>> index, V value, TrainingKey key) {
+        if (value == null) {
+            return;
+        }
+        index.compute(value, (indexValue, keys) -> {
+            if (keys == null) {
+                keys = ConcurrentHashMap.newKeySet();
+            }
+            keys.add(key);
+            return keys;
+        });
+    }
+
+    private static <V> void removeFrom(Map<V, Set<TrainingKey>> index, V value, TrainingKey key) {
+        if (value == null) {
+            return;
+        }
+        index.computeIfPresent(value, (indexValue, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+}
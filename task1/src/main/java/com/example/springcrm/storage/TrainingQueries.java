@@ -0,0 +1,24 @@
+package com.example.springcrm.storage;
+
+import com.example.springcrm.model.Training;
+import com.example.springcrm.model.TrainingType;
+
+import java.util.Date;
+import java.util.List;
+
+//Lookups every trainings storage engine answers besides the plain Storage operations.
+public interface TrainingQueries {
+
+    List<Training> getAllByTraineeId(String traineeId);
+
+    List<Training> getAllByTrainerId(String trainerId);
+
+    List<Training> getAllByTrainingType(TrainingType trainingType);
+
+    //From is inclusive, to is exclusive.
+    List<Training> getAllBetween(Date from, Date to);
+
+    List<Training> getAllByTrainerIdBetween(String trainerId, Date from, Date to);
+
+    List<Training> getAllByTraineeIdBetween(String traineeId, Date from, Date to);
+}
@@ -1,62 +1,116 @@
 package com.example.springcrm.storage;
 
 import com.example.springcrm.model.Training;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
+import com.example.springcrm.model.TrainingKey;
+import com.example.springcrm.model.TrainingType;
+import com.example.springcrm.persistence.Snapshot;
+import com.example.springcrm.persistence.SnapshotManager;
+import com.example.springcrm.persistence.TrainingSnapshotCodec;
+import com.example.springcrm.persistence.WriteAheadLog;
+import com.example.springcrm.persistence.WriteAheadLogFactory;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.ClassPathResource;
-import org.springframework.core.io.Resource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Repository;
 
-import java.io.IOException;
-import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 @Repository("trainingStorage")
-public class TrainingStorage implements Storage<Training> {
+@Profile("!off-heap")
+public class TrainingStorage implements Storage<Training>, TrainingQueries {
     private static final String FILE_PATH = "trainings.json";
+    private static final String PERSISTENCE_NAME = "trainings";
+    private static final TrainingSnapshotCodec SNAPSHOT_CODEC = new TrainingSnapshotCodec();
 
 
-    private final Map<String, Training> trainings;
+    private final Map<TrainingKey, Training> trainings;
+    private final IdSequence ids;
+    private final TrainingIndex trainingIndex = new TrainingIndex();
+    private final SnapshotView<Training> snapshotView = new SnapshotView<>();
+    //Single writes share the read lock, batches take the write lock so they are applied as a whole.
+    private final ReentrantReadWriteLock batchLock = new ReentrantReadWriteLock();
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private JsonSeedLoader seedLoader = new JsonSeedLoader();
+    private WriteAheadLogFactory writeAheadLogFactory;
+    //Set once the log has been replayed, changes made before (seed, replay itself) are not logged.
+    private volatile WriteAheadLog<Training> writeAheadLog;
+    private SnapshotManager snapshotManager;
+    private Snapshot<Training> lastSnapshot;
     private static Logger logger = LoggerFactory.getLogger(TrainingStorage.class);
 
+    public TrainingStorage(Map<TrainingKey, Training> trainings) {
+        this(trainings, new IdSequence());
+    }
+
     @Autowired
-    public TrainingStorage(Map<String, Training> trainings) {
+    public TrainingStorage(Map<TrainingKey, Training> trainings, @Qualifier("trainingIds") IdSequence ids) {
         this.trainings = trainings;
+        this.ids = ids;
+        trainings.forEach(trainingIndex::add);
         logger.info("Created trainingStorage instance");
     }
 
+    @Autowired(required = false)
+    public void setSeedLoader(JsonSeedLoader seedLoader) {
+        this.seedLoader = seedLoader;
+    }
+
+    @Autowired(required = false)
+    public void setWriteAheadLogFactory(WriteAheadLogFactory writeAheadLogFactory) {
+        this.writeAheadLogFactory = writeAheadLogFactory;
+    }
+
+    @Autowired(required = false)
+    public void setSnapshotManager(SnapshotManager snapshotManager) {
+        this.snapshotManager = snapshotManager;
+    }
+
     @Override
+    @PostConstruct
     public void init() {
-        if (LOADING_FROM_FILE) {
-            try {
-                logger.info("Loading trainings from resources: " + FILE_PATH);
+        Snapshot<Training> snapshot = snapshotManager == null
+                ? null
+                : snapshotManager.load(PERSISTENCE_NAME, SNAPSHOT_CODEC);
+        if (snapshot != null) {
+            logger.info("Loading {} trainings from snapshot", snapshot.getValues().size());
+            snapshot.getValues().forEach(this::update);
+            ids.advanceTo(snapshot.getIdHighWaterMark());
+        } else if (LOADING_FROM_FILE) {
+            logger.info("Loading trainings from resources: " + FILE_PATH);
+            seedLoader.load(FILE_PATH, Training.class, batch -> batch.forEach(this::update));
+        }
 
-                Resource resource = new ClassPathResource(FILE_PATH);
-                if (!resource.exists()) {
-                    throw new RuntimeException("File not found in resources: " + FILE_PATH);
-                }
+        if (writeAheadLogFactory != null && writeAheadLogFactory.isEnabled()) {
+            WriteAheadLog<Training> log = writeAheadLogFactory.open(PERSISTENCE_NAME, Training.class);
+            long fromPosition = snapshot == null ? 0 : snapshot.getLogPosition();
+            long replayed = log.replay(fromPosition, this::update, this::delete, this::cleanAll);
+            logger.info("Replayed {} training changes from write-ahead log", replayed);
+            writeAheadLog = log;
+        }
 
-                try (InputStream inputStream = resource.getInputStream()) {
-                    List<Training> trainings = objectMapper.readValue(inputStream, new TypeReference<List<Training>>() { });
-                    for (Training training : trainings) {
-                        update(training);
-                    }
-                }
-            } catch (IOException e) {
-                throw new RuntimeException("Failed to load trainees from file: " + FILE_PATH, e);
-            }
+        if (snapshotManager != null && snapshotManager.isEnabled()) {
+            snapshotManager.register(PERSISTENCE_NAME, this::writeSnapshot);
         }
     }
 
     @Override
     public Training get(String key) throws IllegalArgumentException {
-        return trainings.get(key);
+        return trainings.get(TrainingKey.parse(key));
     }
 
     @Override
@@ -65,31 +119,283 @@ public class TrainingStorage implements Storage<Training> {
     }
 
     @Override
-    public void update(Training training) throws IllegalArgumentException {
-        trainings.put(getKey(training), training.clone());
+    public Training create(Training training) {
+        batchLock.readLock().lock();
+        try {
+            Training stored = training.toImmutable();
+            //Indexes are changed inside compute* so they stay consistent with the map for this key.
+            boolean created = trainings.computeIfAbsent(getKey(training), key -> {
+                trainingIndex.add(key, stored);
+                logPut(stored);
+                return stored;
+            }) == stored;
+            if (created) {
+                snapshotView.invalidate();
+                awaitLogged();
+            }
+            return created ? stored : null;
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Change<Training> update(Training training) throws IllegalArgumentException {
+        batchLock.readLock().lock();
+        try {
+            Training stored = training.toImmutable();
+            AtomicReference<Training> replaced = new AtomicReference<>();
+            trainings.compute(getKey(training), (key, oldValue) -> {
+                replaced.set(oldValue);
+                if (oldValue != null) {
+                    trainingIndex.remove(key, oldValue);
+                }
+                trainingIndex.add(key, stored);
+                logPut(stored);
+                return stored;
+            });
+            snapshotView.invalidate();
+            awaitLogged();
+            return new Change<>(stored, replaced.get());
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Training delete(Training training) throws IllegalArgumentException {
+        batchLock.readLock().lock();
+        try {
+            AtomicReference<Training> removed = new AtomicReference<>();
+            trainings.computeIfPresent(getKey(training), (key, oldValue) -> {
+                removed.set(oldValue);
+                trainingIndex.remove(key, oldValue);
+                logDelete(oldValue);
+                return null;
+            });
+            snapshotView.invalidate();
+            awaitLogged();
+            return removed.get();
+        } finally {
+            batchLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public List<Training> createAll(Collection<Training> newTrainings) {
+        List<Training> created = new ArrayList<>(newTrainings.size());
+        batchLock.writeLock().lock();
+        try {
+            Set<TrainingKey> keys = new HashSet<>();
+            for (Training training : newTrainings) {
+                TrainingKey key = getKey(training);
+                if (!keys.add(key) || trainings.containsKey(key)) {
+                    return null;
+                }
+            }
+            for (Training training : newTrainings) {
+                created.add(create(training));
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        awaitLogged();
+        return created;
     }
 
     @Override
-    public void delete(Training training) throws IllegalArgumentException {
-        trainings.remove(getKey(training));
+    public List<Change<Training>> updateAll(Collection<Training> newTrainings) {
+        List<Change<Training>> changes = new ArrayList<>(newTrainings.size());
+        batchLock.writeLock().lock();
+        try {
+            for (Training training : newTrainings) {
+                changes.add(update(training));
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        awaitLogged();
+        return changes;
+    }
+
+    @Override
+    public List<Training> deleteAll(Collection<Training> trainingsToDelete) {
+        List<Training> removed = new ArrayList<>();
+        batchLock.writeLock().lock();
+        try {
+            for (Training training : trainingsToDelete) {
+                Training oldValue = delete(training);
+                if (oldValue != null) {
+                    removed.add(oldValue);
+                }
+            }
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        awaitLogged();
+        return removed;
     }
 
     @Override
     public List<Training> getAll() {
-        return trainings.values().stream().toList();
+        return snapshotView.get(trainings::values);
+    }
+
+    @Override
+    public int size() {
+        return trainings.size();
+    }
+
+    @Override
+    public Page<Training> getPage(String cursor, int size) {
+        String lastKey = Page.decodeCursor(cursor);
+        NavigableSet<TrainingKey> keys = lastKey == null
+                ? trainingIndex.getAll()
+                : trainingIndex.getAfter(TrainingKey.parse(lastKey));
+        return Page.of(keys.iterator(), trainings::get, size, TrainingKey::toString);
+    }
+
+    @Override
+    public Stream<Training> stream() {
+        return trainingIndex.getAll()
+                .stream()
+                .map(trainings::get)
+                .filter(Objects::nonNull);
     }
 
     @Override
     public String getNextId() {
-        return "" + (trainings.size() + 1);
+        return Long.toString(ids.next());
+    }
+
+    @Override
+    public List<String> getNextIds(int count) {
+        long firstId = ids.reserve(count);
+        return LongStream.range(firstId, firstId + count)
+                .mapToObj(Long::toString)
+                .toList();
     }
 
     @Override
     public void cleanAll() {
-        trainings.clear();
+        //Like a batch: no single write can land between the CLEAR record and the clear, nor a snapshot in between.
+        batchLock.writeLock().lock();
+        try {
+            logClear();
+            trainings.clear();
+            trainingIndex.clear();
+            snapshotView.invalidate();
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        awaitLogged();
+    }
+
+    @Override
+    public List<Training> getAllByTraineeId(String traineeId) {
+        return getAllByKeys(trainingIndex.getByTraineeId(traineeId));
+    }
+
+    @Override
+    public List<Training> getAllByTrainerId(String trainerId) {
+        return getAllByKeys(trainingIndex.getByTrainerId(trainerId));
+    }
+
+    @Override
+    public List<Training> getAllByTrainingType(TrainingType trainingType) {
+        return getAllByKeys(trainingIndex.getByTrainingType(trainingType));
+    }
+
+    @Override
+    public List<Training> getAllBetween(Date from, Date to) {
+        return getAllByKeys(trainingIndex.getBetween(from, to));
+    }
+
+    @Override
+    public List<Training> getAllByTrainerIdBetween(String trainerId, Date from, Date to) {
+        return getAllByTrainerId(trainerId)
+                .stream()
+                .filter(training -> isBetween(training, from, to))
+                .toList();
+    }
+
+    @Override
+    public List<Training> getAllByTraineeIdBetween(String traineeId, Date from, Date to) {
+        return getAllByTraineeId(traineeId)
+                .stream()
+                .filter(training -> isBetween(training, from, to))
+                .toList();
+    }
+
+    private List<Training> getAllByKeys(Collection<TrainingKey> keys) {
+        return keys.stream()
+                .map(trainings::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private static boolean isBetween(Training training, Date from, Date to) {
+        long time = training.getTrainingInstant().toEpochMilli();
+        return time >= from.getTime() && time < to.getTime();
+    }
+
+    private void writeSnapshot() {
+        Snapshot<Training> snapshot;
+        //Write lock waits for in-flight changes, so the values match the log position.
+        batchLock.writeLock().lock();
+        try {
+            List<Training> values = getAll();
+            long idHighWaterMark = ids.getHighWaterMark();
+            //getAll() returns the same list until something changes.
+            if (lastSnapshot != null
+                    && lastSnapshot.getValues() == values
+                    && lastSnapshot.getIdHighWaterMark() == idHighWaterMark) {
+                return;
+            }
+            WriteAheadLog<Training> log = writeAheadLog;
+            snapshot = new Snapshot<>(values, log == null ? 0 : log.position(), idHighWaterMark);
+        } finally {
+            batchLock.writeLock().unlock();
+        }
+        snapshotManager.write(PERSISTENCE_NAME, SNAPSHOT_CODEC, snapshot);
+        lastSnapshot = snapshot;
+        //The snapshot is on disk, the records it covers are no longer needed to restore.
+        WriteAheadLog<Training> log = writeAheadLog;
+        if (log != null) {
+            log.discardBefore(snapshot.getLogPosition());
+        }
+    }
+
+    private void logPut(Training training) {
+        WriteAheadLog<Training> log = writeAheadLog;
+        if (log != null) {
+            log.appendPut(training);
+        }
+    }
+
+    private void logDelete(Training training) {
+        WriteAheadLog<Training> log = writeAheadLog;
+        if (log != null) {
+            log.appendDelete(training);
+        }
+    }
+
+    private void logClear() {
+        WriteAheadLog<Training> log = writeAheadLog;
+        if (log != null) {
+            log.appendClear();
+        }
+    }
+
+    //Changes inside a batch are awaited once the batch is applied, so the batch shares one fsync.
+    private void awaitLogged() {
+        WriteAheadLog<Training> log = writeAheadLog;
+        if (log != null && !batchLock.isWriteLockedByCurrentThread()) {
+            log.awaitDurable(log.lastSequence());
+        }
     }
 
-    private static String getKey(Training training) {
-        return training.getId();
+    private static TrainingKey getKey(Training training) {
+        return training.getKey();
     }
 }
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.example.springcrm.storage;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+//One username namespace for trainees and trainers, so a username can't belong to both.
+//Membership is a hash lookup; numeric suffixes in use are kept sorted per base username,
+//so the next free suffix is the last one plus one and never needs a scan of either storage.
+@Component
+public class UsernameDirectory {
+    private static final int MAX_SUFFIX_DIGITS = 9;
+
+    private final Map<String, String> owners = new ConcurrentHashMap<>();
+    //Base username -> suffixes in use under it, 0 stands for the base itself.
+    private final Map<String, NavigableSet<Integer>> suffixes = new ConcurrentHashMap<>();
+
+    //Returns null if the username was free and now belongs to the owner, otherwise its current owner.
+    public String register(String username, String owner) {
+        String previous = owners.putIfAbsent(username, owner);
+        if (previous == null) {
+            int suffix = suffixOf(username);
+            suffixes.compute(baseOf(username, suffix), (base, used) -> {
+                if (used == null) {
+                    used = new ConcurrentSkipListSet<>();
+                }
+                used.add(suffix);
+                return used;
+            });
+        }
+        return previous;
+    }
+
+    public void unregister(String username, String owner) {
+        if (owners.remove(username, owner)) {
+            int suffix = suffixOf(username);
+            suffixes.computeIfPresent(baseOf(username, suffix), (base, used) -> {
+                used.remove(suffix);
+                return used.isEmpty() ? null : used;
+            });
+        }
+    }
+
+    //Gives back every username of the owner, for when its storage is emptied.
+    public void unregisterAll(String owner) {
+        for (Map.Entry<String, String> entry : owners.entrySet()) {
+            if (entry.getValue().equals(owner)) {
+                unregister(entry.getKey(), owner);
+            }
+        }
+    }
+
+    public boolean contains(String username) {
+        return owners.containsKey(username);
+    }
+
+    public String ownerOf(String username) {
+        return owners.get(username);
+    }
+
+    //Highest suffix in use under the base username, 0 if there is none.
+    public int lastSuffix(String baseUsername) {
+        NavigableSet<Integer> used = suffixes.get(baseUsername);
+        Integer last = used == null ? null : used.floor(Integer.MAX_VALUE);
+        return last == null ? 0 : last;
+    }
+
+    public String nextFreeUsername(String baseUsername) {
+        return contains(baseUsername) ? baseUsername + (lastSuffix(baseUsername) + 1) : baseUsername;
+    }
+
+    public int size() {
+        return owners.size();
+    }
+
+    //Trailing digits of a "First.Last<n>" username, 0 if it has none (or they can't be a generated suffix).
+    static int suffixOf(String username) {
+        int start = username.length();
+        while (start > 0 && isDigit(username.charAt(start - 1))) {
+            start--;
+        }
+        int digits = username.length() - start;
+        if (digits == 0 || digits > MAX_SUFFIX_DIGITS || start == 0 || username.charAt(start) == '0') {
+            return 0;
+        }
+        return Integer.parseInt(username, start, username.length(), 10);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static String baseOf(String username, int suffix) {
+        return suffix == 0 ? username : username.substring(0, username.length() - String.valueOf(suffix).length());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.springcrm.storage;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+//Secondary index over storage keys (usernames).
+//Sorted set answers prefix queries, trigram postings answer substring queries.
+public class UsernameIndex {
+    private static final int GRAM_LENGTH = 3;
+
+    private final NavigableSet<String> usernames = new ConcurrentSkipListSet<>();
+    private final Map<String, Set<String>> postings = new ConcurrentHashMap<>();
+
+    public void add(String username) {
+        if (usernames.add(username)) {
+            for (String gram : gramsOf(username)) {
+                postings.compute(gram, (key, set) -> {
+                    if (set == null) {
+                        set = ConcurrentHashMap.newKeySet();
+                    }
+                    set.add(username);
+                    return set;
+                });
+            }
+        }
+    }
+
+    public void remove(String username) {
+        if (usernames.remove(username)) {
+            for (String gram : gramsOf(username)) {
+                postings.computeIfPresent(gram, (key, set) -> {
+                    set.remove(username);
+                    return set.isEmpty() ? null : set;
+                });
+            }
+        }
+    }
+
+    public void clear() {
+        usernames.clear();
+        postings.clear();
+    }
+
+    //All usernames in sorted order, a live view.
+    public NavigableSet<String> all() {
+        return Collections.unmodifiableNavigableSet(usernames);
+    }
+
+    public NavigableSet<String> after(String username) {
+        return Collections.unmodifiableNavigableSet(usernames.tailSet(username, false));
+    }
+
+    public List<String> withPrefix(String prefix) {
+        return usernames.tailSet(prefix, true)
+                .stream()
+                .takeWhile(username -> username.startsWith(prefix))
+                .toList();
+    }
+
+    public List<String> containing(String substring) {
+        if (substring.length() < GRAM_LENGTH) {
+            //Too short to have a trigram, nothing to narrow the search with.
+            return usernames.stream()
+                    .filter(username -> username.contains(substring))
+                    .toList();
+        }
+
+        Set<String> candidates = null;
+        for (String gram : gramsOf(substring)) {
+            Set<String> posting = postings.get(gram);
+            if (posting == null) {
+                return List.of();
+            }
+            if (candidates == null || posting.size() < candidates.size()) {
+                candidates = posting;
+            }
+        }
+
+        return candidates.stream()
+                .filter(username -> username.contains(substring))
+                .toList();
+    }
+
+    private static Set<String> gramsOf(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            grams.add(value.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+}
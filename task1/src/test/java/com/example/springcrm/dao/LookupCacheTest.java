@@ -0,0 +1,102 @@
+package com.example.springcrm.dao;
+
+import com.example.springcrm.model.Trainee;
+import com.example.springcrm.storage.TraineeStorage;
+import org.junit.jupiter.api.Test;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LookupCacheTest {
+
+    @Test
+    void readThroughAndEviction_OK() {
+        LookupCache<String, String> cache = new LookupCache<>("test", 2, 0, TimeUnit.SECONDS);
+        AtomicInteger loads = new AtomicInteger();
+
+        assertEquals("A", cache.get("a", key -> load(key, loads)));
+        assertEquals("A", cache.get("a", key -> load(key, loads)));
+        assertEquals("B", cache.get("b", key -> load(key, loads)));
+        //"a" was used last, so "b" is the one evicted.
+        cache.get("a", key -> load(key, loads));
+        cache.get("c", key -> load(key, loads));
+
+        assertEquals(3, loads.get());
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.get("a", key -> load(key, loads));
+        assertEquals(3, loads.get());
+        cache.get("b", key -> load(key, loads));
+        assertEquals(4, loads.get());
+
+        assertEquals(3, cache.getHitCount());
+        assertEquals(4, cache.getMissCount());
+    }
+
+    @Test
+    void expiredAndInvalidatedEntriesAreReloaded_OK() throws InterruptedException {
+        LookupCache<String, String> cache = new LookupCache<>("test", 10, 20, TimeUnit.MILLISECONDS);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get("a", key -> load(key, loads));
+        cache.invalidate("a");
+        cache.get("a", key -> load(key, loads));
+        assertEquals(2, loads.get());
+
+        Thread.sleep(40);
+        cache.get("a", key -> load(key, loads));
+        assertEquals(3, loads.get());
+
+        assertNull(cache.get("missing", key -> null));
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    void loadOverlappingInvalidationIsNotCached_OK() {
+        LookupCache<String, String> cache = new LookupCache<>("test", 10, 0, TimeUnit.SECONDS);
+
+        assertEquals("old", cache.get("a", key -> {
+            cache.invalidate(key);
+            return "old";
+        }));
+        assertEquals("new", cache.get("a", key -> "new"));
+    }
+
+    @Test
+    void daoInvalidatesOnWrites_OK() {
+        TraineeDao traineeDao = new TraineeDao(new TraineeStorage(new HashMap<>()));
+        LookupCache<String, Trainee> cache = new LookupCache<>("trainee", 10, 0, TimeUnit.SECONDS);
+        traineeDao.setCache(cache);
+
+        Trainee trainee = new Trainee("Ivan", "Ivanenko", "Ivan.Ivanenko", "123456", true,
+                new Date(), "Holovna st., 1", null);
+        traineeDao.create(trainee);
+        Trainee cached = traineeDao.get("Ivan.Ivanenko");
+        assertEquals(cached, traineeDao.get("Ivan.Ivanenko"));
+        assertEquals(1, cache.getHitCount());
+
+        Trainee moved = new Trainee("Ivan", "Ivanenko", "Ivan.Ivanenko", "123456", true,
+                new Date(), "Holovna st., 2", null);
+        moved.setUserId(trainee.getUserId());
+        traineeDao.update(moved);
+        assertEquals("Holovna st., 2", traineeDao.get("Ivan.Ivanenko").getAddress());
+
+        traineeDao.deleteAll(List.of(moved));
+        assertNull(traineeDao.get("Ivan.Ivanenko"));
+
+        traineeDao.create(trainee);
+        assertNotNull(traineeDao.get("Ivan.Ivanenko"));
+        traineeDao.cleanAll();
+        assertNull(traineeDao.get("Ivan.Ivanenko"));
+    }
+
+    private static String load(String key, AtomicInteger loads) {
+        loads.incrementAndGet();
+        return key.toUpperCase();
+    }
+}
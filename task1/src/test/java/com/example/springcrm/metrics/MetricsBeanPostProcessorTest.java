@@ -0,0 +1,70 @@
+package com.example.springcrm.metrics;
+
+import com.example.springcrm.dao.TraineeDao;
+import com.example.springcrm.model.Trainee;
+import com.example.springcrm.service.TraineeService;
+import com.example.springcrm.storage.TraineeStorage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.Date;
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsBeanPostProcessorTest {
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final MetricsBeanPostProcessor processor;
+
+    MetricsBeanPostProcessorTest() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("meterRegistry", registry);
+        processor = new MetricsBeanPostProcessor(beanFactory.getBeanProvider(MeterRegistry.class));
+    }
+
+    @Test
+    void storageAndDaoCallsAreTimed() {
+        TraineeStorage storage = (TraineeStorage) process(new TraineeStorage(new HashMap<>()), "traineeStorage");
+        TraineeDao dao = (TraineeDao) process(new TraineeDao(storage), "traineeDao");
+
+        dao.create(trainee("Ivan.Ivanenko"));
+        dao.get("Ivan.Ivanenko");
+        dao.get("Ivan.Ivanenko");
+
+        assertEquals(1, registry.get(MetricNames.STORAGE_INIT).tag("storage", "traineeStorage").timer().count());
+        assertEquals(1, registry.get(MetricNames.STORAGE_SIZE).tag("storage", "traineeStorage").gauge().value());
+        assertEquals(2, daoTimer("get").count());
+        assertEquals(1, daoTimer("create").count());
+        assertTrue(registry.get(MetricNames.STORAGE_OPERATIONS)
+                .tags("storage", "traineeStorage", "method", "create").timer().count() >= 1);
+    }
+
+    @Test
+    void usernameCollisionsAreCounted() {
+        TraineeService service = new TraineeService(new TraineeDao(new TraineeStorage(new HashMap<>())));
+        service.setMeterRegistry(registry);
+
+        service.create(trainee(null));
+        service.create(trainee(null));
+        service.create(trainee(null));
+
+        assertEquals(2, registry.get(MetricNames.USERNAME_COLLISIONS).tag("service", "trainee").counter().count());
+    }
+
+    private Object process(Object bean, String name) {
+        return processor.postProcessAfterInitialization(processor.postProcessBeforeInitialization(bean, name), name);
+    }
+
+    private Timer daoTimer(String method) {
+        return registry.get(MetricNames.DAO_OPERATIONS)
+                .tags("dao", "traineeDao", "method", method, "exception", "none")
+                .timer();
+    }
+
+    private static Trainee trainee(String username) {
+        return new Trainee("Ivan", "Ivanenko", username, "123456", true, new Date(), "Holovna st., 1", null);
+    }
+}
@@ -3,9 +3,14 @@ package com.example.springcrm.model;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.Date;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 public class TrainingTest {
@@ -18,7 +23,7 @@ public class TrainingTest {
                 "trainee123",
                 "trainer456",
                 "John Doe",
-                new TrainingType("Yoga"),
+                TrainingType.of("Yoga"),
                 date,
                 Duration.ofHours(1)
         );
@@ -27,7 +32,7 @@ public class TrainingTest {
                 "trainee123",
                 "trainer456",
                 "John Doe",
-                new TrainingType("Yoga"),
+                TrainingType.of("Yoga"),
                 date,
                 Duration.ofHours(1)
         );
@@ -41,7 +46,7 @@ public class TrainingTest {
                 "trainee123",
                 "trainer456",
                 "John Doe",
-                new TrainingType("Yoga"),
+                TrainingType.of("Yoga"),
                 new Date(),
                 Duration.ofHours(1)
         );
@@ -50,4 +55,65 @@ public class TrainingTest {
 
         assertFalse(training1 == training2);
     }
+
+    @Test
+    void testKey() {
+        Date date = new Date(1_700_000_000_000L);
+
+        Training training1 = new Training(
+                "trainee123",
+                "trainer456",
+                "John Doe",
+                TrainingType.of("Yoga"),
+                date,
+                Duration.ofHours(1)
+        );
+
+        Training training2 = new Training(
+                "trainee123",
+                "trainer456",
+                "John Doe",
+                TrainingType.of("Yoga"),
+                new Date(date.getTime() + 500),
+                Duration.ofHours(1)
+        );
+
+        //Trainings within the same second must not share a key.
+        assertNotEquals(training1.getKey(), training2.getKey());
+        assertEquals(training1.getKey(), TrainingKey.parse(training1.getId()));
+        assertSame(training1.getKey(), training1.getKey());
+
+        training1.setTrainingDate(training2.getTrainingDate());
+        assertEquals(training2.getKey(), training1.getKey());
+    }
+
+    @Test
+    void testImmutableCopies() {
+        Training training = Training.builder()
+                .traineeId("trainee123")
+                .trainerId("trainer456")
+                .trainerName("John Doe")
+                .trainingType(TrainingType.of("Yoga"))
+                .trainingDate(Instant.ofEpochMilli(1_700_000_000_000L))
+                .trainingDuration(Duration.ofHours(1))
+                .build();
+
+        assertTrue(training.isImmutable());
+        assertSame(training, training.toImmutable());
+        assertThrows(IllegalStateException.class, () -> training.setTrainerName("Jane Doe"));
+
+        Training moved = training.withTrainingDate(Instant.ofEpochMilli(1_700_000_001_000L));
+        assertTrue(moved.isImmutable());
+        assertEquals(1_700_000_000_000L, training.getKey().getTrainingTime());
+        assertEquals(1_700_000_001_000L, moved.getKey().getTrainingTime());
+
+        //Dates handed out are copies.
+        training.getTrainingDate().setTime(0);
+        assertEquals(1_700_000_000_000L, training.getTrainingDate().getTime());
+
+        Training mutable = training.clone();
+        assertFalse(mutable.isImmutable());
+        mutable.setTrainerName("Jane Doe");
+        assertEquals("John Doe", training.getTrainerName());
+    }
 }
@@ -0,0 +1,45 @@
+package com.example.springcrm.model;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TrainingTypeTest {
+
+    @Test
+    void testCanonicalInstances() {
+        TrainingType yoga = TrainingType.of("Yoga");
+
+        assertSame(yoga, TrainingType.of(new String("Yoga")));
+        assertSame(yoga, TrainingType.ofCode(yoga.getCode()));
+        assertNotEquals(yoga.getCode(), TrainingType.of("Boxing").getCode());
+        assertNull(TrainingType.find("Never registered"));
+        assertThrows(IllegalArgumentException.class, () -> TrainingType.of("Never registered"));
+        assertNull(TrainingType.find("Never registered"));
+
+        TrainingType aerobics = TrainingType.register("Aerobics");
+        assertSame(aerobics, TrainingType.register("Aerobics"));
+        assertSame(aerobics, TrainingType.of("Aerobics"));
+    }
+
+    @Test
+    void testJson() throws Exception {
+        ObjectMapper objectMapper = new ObjectMapper();
+
+        TrainingType fromSeed = objectMapper.readValue("{\"name\": \"Pilates\"}", TrainingType.class);
+        String json = objectMapper.writeValueAsString(fromSeed);
+
+        assertSame(TrainingType.of("Pilates"), fromSeed);
+        assertEquals("{\"trainingTypeName\":\"Pilates\"}", json);
+        assertSame(fromSeed, objectMapper.readValue(json, TrainingType.class));
+        assertThrows(JsonMappingException.class,
+                () -> objectMapper.readValue("{\"name\": \"Made up\"}", TrainingType.class));
+        assertNull(TrainingType.find("Made up"));
+    }
+}
@@ -0,0 +1,160 @@
+package com.example.springcrm.persistence;
+
+import com.example.springcrm.model.Trainee;
+import com.example.springcrm.model.Training;
+import com.example.springcrm.model.TrainingType;
+import com.example.springcrm.storage.TraineeStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void writeAndRead_OK() throws IOException {
+        Training training = new Training();
+        training.setTraineeId("1");
+        training.setTrainerId("2");
+        training.setTrainerName("Yoga basics");
+        training.setTrainingType(TrainingType.of("Yoga"));
+        training.setTrainingDate(new Date(1_700_000_000_000L));
+        training.setTrainingDuration(Duration.ofMinutes(90));
+        Path file = directory.resolve("trainings.snapshot");
+
+        SnapshotFile.write(file, new TrainingSnapshotCodec(), new Snapshot<>(List.of(training), 42, 7));
+        Snapshot<Training> snapshot = SnapshotFile.read(file, new TrainingSnapshotCodec());
+
+        assertEquals(42, snapshot.getLogPosition());
+        assertEquals(7, snapshot.getIdHighWaterMark());
+        assertEquals(List.of(training), snapshot.getValues());
+        assertEquals("Yoga", snapshot.getValues().get(0).getTrainingType().getTrainingTypeName());
+    }
+
+    @Test
+    void userVersionKept_OK() throws IOException {
+        Path file = directory.resolve("trainees.snapshot");
+        SnapshotFile.write(file, new TraineeSnapshotCodec(),
+                new Snapshot<>(List.of(newTrainee("1", "Ivan.Ivanenko").withVersion(3)), 0, 1));
+
+        Trainee restored = SnapshotFile.read(file, new TraineeSnapshotCodec()).getValues().get(0);
+        assertEquals(3, restored.getVersion());
+        assertEquals("Ivan.Ivanenko", restored.getUsername());
+    }
+
+    @Test
+    void readCorrupted_NotOK() throws IOException {
+        Path file = directory.resolve("trainees.snapshot");
+        SnapshotFile.write(file, new TraineeSnapshotCodec(),
+                new Snapshot<>(List.of(newTrainee("1", "Ivan.Ivanenko")), 0, 1));
+
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length / 2] ^= 1;
+        Files.write(file, bytes);
+
+        assertThrows(IOException.class, () -> SnapshotFile.read(file, new TraineeSnapshotCodec()));
+    }
+
+    @Test
+    void restoreFromSnapshotAndLog_OK() {
+        String walDirectory = directory.resolve("wal").toString();
+        String snapshotDirectory = directory.resolve("snapshots").toString();
+        WriteAheadLogFactory logFactory = new WriteAheadLogFactory(walDirectory, "always", 100);
+        SnapshotManager snapshotManager = new SnapshotManager(snapshotDirectory, 3600);
+        TraineeStorage storage = newStorage(logFactory, snapshotManager);
+
+        storage.create(newTrainee("1", "Ivan.Ivanenko"));
+        storage.create(newTrainee("2", "Petro.Petrenko"));
+        snapshotManager.snapshotAll();
+        storage.delete(newTrainee("1", "Ivan.Ivanenko"));
+        storage.create(newTrainee("3", "Olena.Olenko"));
+        logFactory.closeAll();
+        snapshotManager.shutdown();
+
+        TraineeStorage restored = newStorage(new WriteAheadLogFactory(walDirectory, "always", 100),
+                new SnapshotManager(snapshotDirectory, 3600));
+
+        assertNull(restored.get("Ivan.Ivanenko"));
+        assertNotNull(restored.get("Petro.Petrenko"));
+        assertNotNull(restored.get("Olena.Olenko"));
+        assertEquals(2, restored.getAll().size());
+        assertEquals("4", restored.getNextId());
+    }
+
+    @Test
+    void snapshotShrinksLog_OK() throws IOException {
+        String walDirectory = directory.resolve("wal").toString();
+        String snapshotDirectory = directory.resolve("snapshots").toString();
+        Path logFile = directory.resolve("wal").resolve("trainees.wal");
+        WriteAheadLogFactory logFactory = new WriteAheadLogFactory(walDirectory, "always", 100);
+        SnapshotManager snapshotManager = new SnapshotManager(snapshotDirectory, 3600);
+        TraineeStorage storage = newStorage(logFactory, snapshotManager);
+
+        for (int i = 1; i <= 50; i++) {
+            storage.create(newTrainee(String.valueOf(i), "Trainee.User" + i));
+        }
+        long sizeBeforeSnapshot = Files.size(logFile);
+        snapshotManager.snapshotAll();
+        long sizeAfterSnapshot = Files.size(logFile);
+        assertTrue(sizeAfterSnapshot < sizeBeforeSnapshot);
+
+        storage.delete(newTrainee("1", "Trainee.User1"));
+        storage.create(newTrainee("51", "Trainee.User51"));
+        snapshotManager.snapshotAll();
+        storage.delete(newTrainee("2", "Trainee.User2"));
+        assertTrue(Files.size(logFile) < sizeBeforeSnapshot);
+        logFactory.closeAll();
+        snapshotManager.shutdown();
+
+        WriteAheadLogFactory restoredLogFactory = new WriteAheadLogFactory(walDirectory, "always", 100);
+        SnapshotManager restoredSnapshotManager = new SnapshotManager(snapshotDirectory, 3600);
+        TraineeStorage restored = newStorage(restoredLogFactory, restoredSnapshotManager);
+
+        assertNull(restored.get("Trainee.User1"));
+        assertNull(restored.get("Trainee.User2"));
+        assertNotNull(restored.get("Trainee.User51"));
+        assertEquals(49, restored.getAll().size());
+        assertEquals("52", restored.getNextId());
+
+        //The compacted log keeps taking appends that replay after the snapshot.
+        restored.create(newTrainee("52", "Trainee.User52"));
+        restoredLogFactory.closeAll();
+        restoredSnapshotManager.shutdown();
+        TraineeStorage reopened = newStorage(new WriteAheadLogFactory(walDirectory, "always", 100),
+                new SnapshotManager(snapshotDirectory, 3600));
+        assertNotNull(reopened.get("Trainee.User52"));
+        assertEquals(50, reopened.getAll().size());
+    }
+
+    private static TraineeStorage newStorage(WriteAheadLogFactory logFactory, SnapshotManager snapshotManager) {
+        TraineeStorage storage = new TraineeStorage(new HashMap<>());
+        storage.setWriteAheadLogFactory(logFactory);
+        storage.setSnapshotManager(snapshotManager);
+        storage.init();
+        return storage;
+    }
+
+    private static Trainee newTrainee(String userId, String username) {
+        Trainee trainee = new Trainee();
+        trainee.setUserId(userId);
+        trainee.setUsername(username);
+        trainee.setFirstName(username.split("\\.")[0]);
+        trainee.setLastName(username.split("\\.")[1]);
+        return trainee;
+    }
+}
@@ -0,0 +1,127 @@
+package com.example.springcrm.persistence;
+
+import com.example.springcrm.model.Trainee;
+import com.example.springcrm.storage.TraineeStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WriteAheadLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void storageChangesSurviveRestart_OK() {
+        WriteAheadLogFactory factory = new WriteAheadLogFactory(directory.toString(), "always", 100);
+        TraineeStorage storage = newStorage(factory);
+        storage.create(newTrainee("1", "Ivan.Ivanenko"));
+        storage.create(newTrainee("2", "Petro.Petrenko"));
+        storage.delete(newTrainee("1", "Ivan.Ivanenko"));
+        factory.closeAll();
+
+        TraineeStorage restored = newStorage(new WriteAheadLogFactory(directory.toString(), "never", 100));
+
+        assertNull(restored.get("Ivan.Ivanenko"));
+        assertNotNull(restored.get("Petro.Petrenko"));
+        assertEquals(1, restored.getAll().size());
+        assertEquals("3", restored.getNextId());
+    }
+
+    @Test
+    void cleanAllRacingCreatesReplaysSame_OK() {
+        WriteAheadLogFactory factory = new WriteAheadLogFactory(directory.toString(), "never", 100);
+        TraineeStorage storage = new TraineeStorage(new ConcurrentHashMap<>());
+        storage.setWriteAheadLogFactory(factory);
+        storage.init();
+
+        CompletableFuture<Void> creates = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 2000; i++) {
+                storage.create(newTrainee(String.valueOf(i), "Ivan.Ivanenko" + i));
+            }
+        });
+        while (!creates.isDone()) {
+            storage.cleanAll();
+        }
+        creates.join();
+        factory.closeAll();
+
+        TraineeStorage restored = newStorage(new WriteAheadLogFactory(directory.toString(), "never", 100));
+        assertEquals(usernames(storage), usernames(restored));
+    }
+
+    @Test
+    void replayStopsAtTornRecord_OK() throws IOException {
+        WriteAheadLogFactory factory = new WriteAheadLogFactory(directory.toString(), "interval", 10);
+        WriteAheadLog<Trainee> log = factory.open("trainees", Trainee.class);
+        log.replay(trainee -> { }, trainee -> { }, () -> { });
+        log.awaitDurable(log.appendPut(newTrainee("1", "Ivan.Ivanenko")));
+        factory.closeAll();
+
+        Path file = directory.resolve("trainees.wal");
+        long validSize = Files.size(file);
+        Files.write(file, new byte[]{0, 0, 0, 42, 1, 2}, StandardOpenOption.APPEND);
+
+        WriteAheadLog<Trainee> reopened = factory.open("trainees", Trainee.class);
+        List<Trainee> replayed = new ArrayList<>();
+        long count = reopened.replay(replayed::add, trainee -> { }, () -> { });
+        factory.closeAll();
+
+        assertEquals(1, count);
+        assertEquals("Ivan.Ivanenko", replayed.get(0).getUsername());
+        assertEquals(validSize, Files.size(file));
+    }
+
+    @Test
+    void deadWriterFailsAppends_NotOK() throws InterruptedException {
+        WriteAheadLogFactory factory = new WriteAheadLogFactory(directory.toString(), "always", 100);
+        WriteAheadLog<Trainee> log = factory.open("trainees", Trainee.class);
+        log.replay(trainee -> { }, trainee -> { }, () -> { });
+        Thread writer = Thread.getAllStackTraces().keySet().stream()
+                .filter(thread -> thread.getName().equals("wal-trainees.wal"))
+                .findFirst()
+                .orElseThrow();
+
+        writer.interrupt();
+        writer.join();
+
+        assertThrows(IllegalStateException.class, () -> log.appendPut(newTrainee("1", "Ivan.Ivanenko")));
+        factory.closeAll();
+    }
+
+    private static Set<String> usernames(TraineeStorage storage) {
+        return storage.stream().map(Trainee::getUsername).collect(Collectors.toSet());
+    }
+
+    private static TraineeStorage newStorage(WriteAheadLogFactory factory) {
+        TraineeStorage storage = new TraineeStorage(new HashMap<>());
+        storage.setWriteAheadLogFactory(factory);
+        storage.init();
+        return storage;
+    }
+
+    private static Trainee newTrainee(String userId, String username) {
+        Trainee trainee = new Trainee();
+        trainee.setUserId(userId);
+        trainee.setUsername(username);
+        trainee.setFirstName(username.split("\\.")[0]);
+        trainee.setLastName(username.split("\\.")[1]);
+        return trainee;
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.springcrm.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordGeneratorTest {
+    private static final String PERMITTED_CHARACTERS =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+
+    private final PasswordGenerator passwordGenerator = new PasswordGenerator();
+
+    @Test
+    void batchGeneration_OK() {
+        List<String> passwords = passwordGenerator.generate(1000, 10);
+
+        assertEquals(1000, passwords.size());
+        Set<Character> used = new HashSet<>();
+        for (String password : passwords) {
+            assertEquals(10, password.length());
+            for (char c : password.toCharArray()) {
+                assertTrue(PERMITTED_CHARACTERS.indexOf(c) != -1);
+                used.add(c);
+            }
+        }
+        //10000 characters, every one of the 62 should show up.
+        assertEquals(PERMITTED_CHARACTERS.length(), used.size());
+        assertEquals(1000, new HashSet<>(passwords).size());
+    }
+
+    @Test
+    void emptyBatch_OK() {
+        assertTrue(passwordGenerator.generate(0, 10).isEmpty());
+        assertEquals("", passwordGenerator.generate(0));
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.springcrm.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+    //Few iterations and a one-slot queue, so the caller-runs path is exercised quickly.
+    private final PasswordHasher passwordHasher = new PasswordHasher(1000, 2, 1, 100, 300);
+
+    @AfterEach
+    void tearDown() {
+        passwordHasher.shutdown();
+    }
+
+    @Test
+    void hashAndVerify_OK() {
+        String hash = passwordHasher.hash("secret1234");
+
+        assertTrue(passwordHasher.isHash(hash));
+        assertFalse(hash.contains("secret1234"));
+        assertNotEquals(hash, passwordHasher.hash("secret1234"));
+        assertTrue(passwordHasher.verify("secret1234", hash));
+        //Second check is answered by the cache, a wrong password still has to fail.
+        assertTrue(passwordHasher.verify("secret1234", hash));
+        assertFalse(passwordHasher.verify("secret1235", hash));
+        assertFalse(passwordHasher.verify(null, hash));
+    }
+
+    @Test
+    void verifyPlainStoredPassword_OK() {
+        assertTrue(passwordHasher.verify("123456", "123456"));
+        assertFalse(passwordHasher.verify("1234567", "123456"));
+        assertFalse(passwordHasher.isHash("123456"));
+    }
+
+    @Test
+    void hashUnderBackpressure_OK() {
+        List<CompletableFuture<String>> hashes = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            hashes.add(passwordHasher.hashAsync("password" + i));
+        }
+
+        for (int i = 0; i < hashes.size(); i++) {
+            assertTrue(passwordHasher.verify("password" + i, hashes.get(i).join()));
+        }
+    }
+
+    @Test
+    void verifyMalformedHash_OK() {
+        assertFalse(passwordHasher.verify("secret1234", "pbkdf2-sha256$"));
+        assertFalse(passwordHasher.verify("secret1234", "pbkdf2-sha256$x$AAAA$AAAA"));
+        assertFalse(passwordHasher.verify("secret1234", "pbkdf2-sha256$0$AAAA$AAAA"));
+        assertFalse(passwordHasher.verify("secret1234", "pbkdf2-sha256$1000$!!$AAAA"));
+        assertFalse(passwordHasher.verify("secret1234", "pbkdf2-sha256$1000$$"));
+    }
+
+    @Test
+    void hashAfterShutdown_Throws() {
+        passwordHasher.shutdown();
+
+        assertThrows(RejectedExecutionException.class, () -> passwordHasher.hash("secret1234"));
+    }
+}
@@ -1,16 +1,21 @@
 package com.example.springcrm.service;
 
 import com.example.springcrm.dao.TraineeDao;
+import com.example.springcrm.exception.VersionConflictException;
 import com.example.springcrm.model.Trainee;
 import com.example.springcrm.storage.TraineeStorage;
+import com.example.springcrm.storage.UsernameDirectory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static com.example.springcrm.SpringCrmApplicationTests.assertThatListsAreEqual;
 import static org.junit.jupiter.api.Assertions.*;
@@ -26,7 +31,7 @@ public class TraineeServiceTest {
 
     @AfterEach
     void tearDown() {
-        traineeStorage.cleanAll();
+        traineeDao.cleanAll();
     }
 
     @Test
@@ -46,6 +51,49 @@ public class TraineeServiceTest {
         assertEquals(trainee, traineeService.select(trainee.getUsername()));
     }
 
+    @Test
+    void createTraineeWithHashedPassword_OK() {
+        PasswordHasher passwordHasher = new PasswordHasher(1000, 2, 10, 100, 300);
+        traineeService.setPasswordHasher(passwordHasher);
+        Trainee trainee = new Trainee("Ivan", "Ivanenko", null, null, true, new Date(), "Holovna st., 1", null);
+
+        traineeService.create(trainee);
+        Trainee stored = traineeService.select(trainee.getUsername());
+        //Caller keeps the issued password, storage only its hash.
+        assertEquals(trainee.getUserId(), stored.getUserId());
+        assertTrue(passwordHasher.isHash(stored.getPassword()));
+        assertTrue(traineeService.verifyPassword(trainee.getUsername(), trainee.getPassword()));
+        assertFalse(traineeService.verifyPassword(trainee.getUsername(), trainee.getPassword() + "x"));
+        assertFalse(traineeService.verifyPassword("Nobody.Here", trainee.getPassword()));
+
+        //Unchanged password keeps its stored hash.
+        String storedHash = stored.getPassword();
+        trainee.setAddress("Holovna st., 2");
+        traineeService.update(trainee);
+        stored = traineeService.select(trainee.getUsername());
+        assertEquals("Holovna st., 2", stored.getAddress());
+        assertEquals(storedHash, stored.getPassword());
+        assertTrue(traineeService.verifyPassword(trainee.getUsername(), trainee.getPassword()));
+
+        //Value that only looks like a hash is still a password.
+        trainee.setPassword("pbkdf2-sha256$1$AAAA$AAAA");
+        traineeService.update(trainee);
+        stored = traineeService.select(trainee.getUsername());
+        assertNotEquals(trainee.getPassword(), stored.getPassword());
+        assertTrue(traineeService.verifyPassword(trainee.getUsername(), "pbkdf2-sha256$1$AAAA$AAAA"));
+
+        List<Trainee> batch = traineeService.createAll(List.of(
+                new Trainee("Petro", "Petrenko", null, null, true, new Date(), "Holovna st., 3", null).toImmutable(),
+                new Trainee("Petro", "Petrenko", null, null, true, new Date(), "Holovna st., 4", null)));
+        assertEquals(2, batch.size());
+        for (Trainee created : batch) {
+            assertNotNull(created.getUserId());
+            assertFalse(passwordHasher.isHash(created.getPassword()));
+            assertTrue(traineeService.verifyPassword(created.getUsername(), created.getPassword()));
+        }
+        passwordHasher.shutdown();
+    }
+
     @Test
     void createTraineeUsernameOverlap_OK() {
         Trainee trainee1 = new Trainee(
@@ -94,6 +142,51 @@ public class TraineeServiceTest {
 
     }
 
+    @Test
+    void createTraineeManyUsernameOverlaps_OK() {
+        //Suffixes must be compared as numbers: "Ivan.Ivanenko10" comes after "Ivan.Ivanenko9".
+        int numberOfTrainees = 12;
+
+        for (int i = 0; i < numberOfTrainees; i++) {
+            traineeService.create(new Trainee(
+                    "Ivan",
+                    "Ivanenko",
+                    null,
+                    "123456",
+                    true,
+                    new Date(),
+                    "Holovna st., " + i,
+                    null
+            ));
+        }
+
+        assertEquals(numberOfTrainees, traineeService.list().size());
+        assertNotNull(traineeService.select("Ivan.Ivanenko"));
+        assertNotNull(traineeService.select("Ivan.Ivanenko11"));
+    }
+
+    @Test
+    void createAllTrainees_OK() {
+        traineeService.create(new Trainee("Ivan", "Ivanenko", null, "123456", true,
+                new Date(), "Holovna st., 1", null));
+
+        List<Trainee> batch = List.of(
+                new Trainee("Ivan", "Ivanenko", null, null, true, new Date(), "Holovna st., 2", null),
+                new Trainee("Ivan", "Ivanenko", null, null, true, new Date(), "Holovna st., 3", null),
+                new Trainee("Maria", "Petrenko", null, null, true, new Date(), "Holovna st., 4", null),
+                new Trainee(null, "Petrenko", null, null, true, new Date(), "Holovna st., 5", null)
+        );
+        traineeService.createAll(batch);
+
+        //Invalid name is skipped, the rest get unique usernames.
+        assertEquals(4, traineeService.list().size());
+        assertEquals("Ivan.Ivanenko1", batch.get(0).getUsername());
+        assertEquals("Ivan.Ivanenko2", batch.get(1).getUsername());
+        assertEquals("Maria.Petrenko", batch.get(2).getUsername());
+        assertNotNull(batch.get(2).getPassword());
+        assertNotEquals(batch.get(0).getUserId(), batch.get(1).getUserId());
+    }
+
     @Test
     void createTraineeNullOrEmptyName_NotOK() {
         Trainee trainee1 = new Trainee(
@@ -301,6 +394,20 @@ public class TraineeServiceTest {
         assertEquals(0, trainees.size());
     }
 
+    @Test
+    void userIdIsNotReusedAfterDelete_OK() {
+        Trainee first = new Trainee("Maria", "Petrenko", null, "123456", true,
+                new Date(), "Holovna st., 176", null);
+        Trainee second = new Trainee("Petro", "Ivanenko", null, "123456", true,
+                new Date(), "Holovna st., 176", null);
+
+        traineeService.create(first);
+        traineeService.delete(first);
+        traineeService.create(second);
+
+        assertNotEquals(first.getUserId(), second.getUserId());
+    }
+
     @Test
     void deleteNotExisting_OK(){
         Trainee trainee = new Trainee(
@@ -360,4 +467,125 @@ public class TraineeServiceTest {
         List<Trainee> trainees = traineeService.list();
         assertEquals(0, trainees.size());
     }
+
+    @Test
+    void createAsyncConcurrentOverlap_OK() {
+        TraineeService service = new TraineeService(new TraineeDao(new TraineeStorage(new ConcurrentHashMap<>())));
+        int numberOfTrainees = 200;
+
+        List<CompletableFuture<Trainee>> creates = new ArrayList<>();
+        for (int i = 0; i < numberOfTrainees; i++) {
+            creates.add(service.createAsync(new Trainee(
+                    "Olena",
+                    "Koval",
+                    null,
+                    null,
+                    true,
+                    new Date(),
+                    "Holovna st., 5",
+                    null
+            )));
+        }
+        CompletableFuture.allOf(creates.toArray(new CompletableFuture[0])).join();
+
+        List<Trainee> created = service.listAsync().join();
+        assertEquals(numberOfTrainees, created.size());
+        assertEquals(numberOfTrainees, created.stream().map(Trainee::getUsername).distinct().count());
+        assertNotNull(service.selectAsync("Olena.Koval").join());
+    }
+
+    @Test
+    void createImmutableTrainee_OK() {
+        Trainee trainee = Trainee.builder()
+                .firstName("Petro")
+                .lastName("Shevchenko")
+                .active(true)
+                .dateOfBirth(Instant.ofEpochMilli(946_684_800_000L))
+                .address("Holovna st., 7")
+                .build();
+
+        Trainee created = traineeService.create(trainee);
+
+        assertNull(trainee.getUsername());
+        assertEquals("Petro.Shevchenko", created.getUsername());
+        assertNotNull(created.getPassword());
+        assertNotNull(created.getUserId());
+        //Storage keeps immutable values, select hands out a mutable copy.
+        Trainee selected = traineeService.select("Petro.Shevchenko");
+        assertEquals(created, selected);
+        assertFalse(selected.isImmutable());
+
+        Trainee renamed = traineeService.update(created.withLastName("Koval"));
+        assertEquals("Petro.Koval", renamed.getUsername());
+        assertEquals(created.getUserId(), traineeService.select("Petro.Koval").getUserId());
+    }
+
+    @Test
+    void selectChangeUpdate_OK() {
+        traineeService.create(new Trainee("Olena", "Olenko", null, null, true, new Date(), "Holovna st., 1", null));
+        Trainee selected = traineeService.select("Olena.Olenko");
+
+        selected.setAddress("Holovna st., 2");
+        Trainee updated = traineeService.update(selected);
+
+        assertSame(selected, updated);
+        assertEquals("Holovna st., 2", traineeService.select("Olena.Olenko").getAddress());
+        assertTrue(traineeDao.getAll().get(0).isImmutable());
+    }
+
+    @Test
+    void staleUpdateConflict_NotOK() {
+        traineeService.create(new Trainee("Olena", "Olenko", null, null, true, new Date(), "Holovna st., 1", null));
+        Trainee first = traineeService.select("Olena.Olenko");
+        Trainee second = traineeService.select("Olena.Olenko");
+
+        Trainee updated = traineeService.update(first.withAddress("Holovna st., 2"));
+        assertEquals(first.getVersion() + 1, updated.getVersion());
+        //Second writer read the same version, its update would overwrite the first one.
+        assertThrows(VersionConflictException.class,
+                () -> traineeService.update(second.withAddress("Holovna st., 3")));
+        assertEquals("Holovna st., 2", traineeService.select("Olena.Olenko").getAddress());
+        //A batch that lost the race leaves the usernames it brought free.
+        traineeDao.setUsernameDirectory(new UsernameDirectory());
+        Trainee renamed = first.withLastName("Koval").withUsername("Olena.Koval");
+        assertThrows(VersionConflictException.class,
+                () -> traineeDao.updateAll(List.of(renamed, second.withAddress("Holovna st., 3"))));
+        assertFalse(traineeDao.isUsernameTaken("Olena.Koval"));
+
+        Trainee retried = traineeService.update(traineeService.select("Olena.Olenko").withAddress("Holovna st., 3"));
+        assertEquals(updated.getVersion() + 1, retried.getVersion());
+        assertEquals("Holovna st., 3", traineeService.select("Olena.Olenko").getAddress());
+    }
+
+    @Test
+    void concurrentUpdatesNotLost_OK() {
+        TraineeStorage concurrentStorage = new TraineeStorage(new ConcurrentHashMap<>());
+        TraineeService service = new TraineeService(new TraineeDao(concurrentStorage));
+        service.create(new Trainee("Olena", "Olenko", null, null, true, new Date(), "0", null));
+
+        int writers = 4;
+        int incrementsPerWriter = 50;
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                for (int i = 0; i < incrementsPerWriter; i++) {
+                    while (true) {
+                        Trainee current = service.select("Olena.Olenko");
+                        int counter = Integer.parseInt(current.getAddress());
+                        try {
+                            service.update(current.withAddress(String.valueOf(counter + 1)));
+                            break;
+                        } catch (VersionConflictException e) {
+                            //Somebody else got in first, read again.
+                        }
+                    }
+                }
+            }));
+        }
+        futures.forEach(CompletableFuture::join);
+
+        Trainee result = service.select("Olena.Olenko");
+        assertEquals(String.valueOf(writers * incrementsPerWriter), result.getAddress());
+        assertEquals(writers * incrementsPerWriter, result.getVersion());
+    }
 }
@@ -1,17 +1,28 @@
 package com.example.springcrm.service;
 
+import com.example.springcrm.dao.TraineeDao;
 import com.example.springcrm.dao.TrainerDao;
+import com.example.springcrm.exception.UserAlreadyExistsException;
+import com.example.springcrm.model.Trainee;
 import com.example.springcrm.model.Trainer;
+import com.example.springcrm.storage.Page;
+import com.example.springcrm.storage.TraineeStorage;
 import com.example.springcrm.storage.TrainerStorage;
+import com.example.springcrm.storage.UsernameDirectory;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import static com.example.springcrm.SpringCrmApplicationTests.assertThatListsAreEqual;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 
 public class TrainerServiceTest {
@@ -23,7 +34,7 @@ public class TrainerServiceTest {
 
     @AfterEach
     void tearDown() {
-        trainerStorage.cleanAll();
+        trainerDao.cleanAll();
     }
 
     @Test
@@ -43,6 +54,37 @@ public class TrainerServiceTest {
     }
 
 
+    @Test
+    void usernameSharedWithTrainees_OK() {
+        UsernameDirectory usernameDirectory = new UsernameDirectory();
+        UsernameReservations reservations = new UsernameReservations(usernameDirectory::contains,
+                UsernameSuffixRegistry.ofLastSuffix(usernameDirectory::lastSuffix));
+        TraineeStorage traineeStorage = new TraineeStorage(new HashMap<>());
+        TraineeDao traineeDao = new TraineeDao(traineeStorage);
+        traineeDao.setUsernameDirectory(usernameDirectory);
+        trainerDao.setUsernameDirectory(usernameDirectory);
+        TraineeService traineeService = new TraineeService(traineeDao);
+        traineeService.setUsernameReservations(reservations);
+        trainerService.setUsernameReservations(reservations);
+
+        Trainee trainee = traineeService.create(
+                new Trainee("Ivan", "Ivanenko", null, null, true, new Date(), "Holovna st., 1", null));
+        Trainer trainer = trainerService.create(new Trainer("Ivan", "Ivanenko", null, null, true, "Boxing", null));
+        assertEquals("Ivan.Ivanenko", trainee.getUsername());
+        assertEquals("Ivan.Ivanenko1", trainer.getUsername());
+        assertEquals("trainer", usernameDirectory.ownerOf("Ivan.Ivanenko1"));
+
+        //Writing a taken username straight through the DAO is refused as well.
+        assertThrows(UserAlreadyExistsException.class, () ->
+                trainerDao.create(new Trainer("Ivan", "Ivanenko", "Ivan.Ivanenko", null, true, "Boxing", null)));
+        assertNull(trainerService.select("Ivan.Ivanenko"));
+
+        trainerDao.deleteAll(List.of(trainer));
+        assertFalse(usernameDirectory.contains("Ivan.Ivanenko1"));
+        traineeDao.cleanAll();
+        assertFalse(usernameDirectory.contains("Ivan.Ivanenko"));
+    }
+
     @Test
     void createTrainerUsernameOverlap_OK() {
         Trainer trainer1 = new Trainer(
@@ -304,4 +346,27 @@ public class TrainerServiceTest {
         List<Trainer> trainers = trainerService.list();
         assertEquals(0, trainers.size());
     }
+
+    @Test
+    void listTrainersByPages_OK() {
+        int numberOfTrainers = 7;
+        int pageSize = 3;
+
+        for (int i = 0; i < numberOfTrainers; i++) {
+            trainerService.create(new Trainer("Ivan", "Ivanenko", null, "123456", true, "Boxing", null));
+        }
+
+        List<String> usernames = new ArrayList<>();
+        Page<Trainer> page = trainerService.list(null, pageSize);
+        usernames.addAll(page.getItems().stream().map(Trainer::getUsername).toList());
+        while (page.hasNext()) {
+            page = trainerService.list(page.getNextCursor(), pageSize);
+            usernames.addAll(page.getItems().stream().map(Trainer::getUsername).toList());
+        }
+
+        //Pages follow username order and cover every trainer once.
+        assertEquals(numberOfTrainers, usernames.size());
+        assertEquals(usernames.stream().sorted().toList(), usernames);
+        assertEquals(usernames, trainerService.stream().map(Trainer::getUsername).toList());
+    }
 }
@@ -2,6 +2,8 @@ package com.example.springcrm.service;
 
 import com.example.springcrm.dao.TrainingDao;
 import com.example.springcrm.model.Training;
+import com.example.springcrm.model.TrainingKey;
+import com.example.springcrm.model.TrainingTotals;
 import com.example.springcrm.model.TrainingType;
 import com.example.springcrm.storage.TrainingStorage;
 import org.junit.jupiter.api.AfterEach;
@@ -9,10 +11,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -20,7 +25,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 class TrainingServiceTest {
 
-    private Map<String, Training> trainings = new HashMap<String, Training>();
+    private Map<TrainingKey, Training> trainings = new HashMap<TrainingKey, Training>();
     private TrainingStorage trainingStorage = new TrainingStorage(trainings);
     private TrainingDao trainingDao = new TrainingDao(trainingStorage); 
     private TrainingService trainingService = new TrainingService(trainingDao);  
@@ -34,7 +39,7 @@ class TrainingServiceTest {
                 "trainee123",
                 "trainer456",
                 "John Doe",
-                new TrainingType("Yoga"),
+                TrainingType.of("Yoga"),
                 new Date(),
                 Duration.ofHours(1)
         );
@@ -42,7 +47,7 @@ class TrainingServiceTest {
 
     @AfterEach
     void tearDown() {
-        trainingStorage.cleanAll();
+        trainingDao.cleanAll();
     }
 
     @Test
@@ -67,7 +72,7 @@ class TrainingServiceTest {
                     "trainee123",
                     "trainer456",
                     "John Doe",
-                    new TrainingType("Yoga"),
+                    TrainingType.of("Yoga"),
                     newDate,
                     Duration.ofHours(1)
             );
@@ -99,7 +104,7 @@ class TrainingServiceTest {
                 "trainee123",
                 "trainer456",
                 "John Doe",
-                new TrainingType("Yoga"),
+                TrainingType.of("Yoga"),
                 currentDate,
                 Duration.ofHours(1)
         );
@@ -108,7 +113,7 @@ class TrainingServiceTest {
                 "trainee789",
                 "trainer000",
                 "Max Payne",
-                new TrainingType("Boxing"),
+                TrainingType.of("Boxing"),
                 currentDate,
                 Duration.ofHours(1)
         );
@@ -119,6 +124,101 @@ class TrainingServiceTest {
         assertEquals(trainings.size(), 2);
     }
 
+    @Test
+    void createAllWithExistingTraining_NotOK() {
+        trainingService.create(sampleTraining);
+
+        Training newTraining = new Training(
+                "trainee789",
+                "trainer000",
+                "Max Payne",
+                TrainingType.of("Boxing"),
+                new Date(),
+                Duration.ofHours(1)
+        );
+        trainingService.createAll(List.of(newTraining, sampleTraining));
+
+        //Batch is applied as a whole, so the new training is not stored either.
+        assertEquals(1, trainingService.list().size());
+        assertNull(trainingService.select(newTraining.getId()));
+    }
+
+    @Test
+    void listTrainingsByIndexes_OK() {
+        long day = 24 * 60 * 60 * 1000;
+        Date start = new Date(1_700_000_000_000L);
+
+        trainingService.create(new Training("trainee1", "trainer1", "John Doe",
+                TrainingType.of("Yoga"), start, Duration.ofHours(1)));
+        trainingService.create(new Training("trainee1", "trainer2", "Max Payne",
+                TrainingType.of("Boxing"), new Date(start.getTime() + day), Duration.ofHours(1)));
+        trainingService.create(new Training("trainee2", "trainer1", "John Doe",
+                TrainingType.of("Yoga"), new Date(start.getTime() + 2 * day), Duration.ofHours(1)));
+
+        assertEquals(2, trainingService.listByTrainee("trainee1").size());
+        assertEquals(2, trainingService.listByTrainer("trainer1").size());
+        assertEquals(2, trainingService.listByTrainingType(TrainingType.of("Yoga")).size());
+        assertEquals(2, trainingService.listByTrainingType("Yoga").size());
+        assertEquals(0, trainingService.listByTrainingType("Swimming").size());
+        assertEquals(0, trainingService.listByTrainee("trainee3").size());
+
+        Date to = new Date(start.getTime() + 2 * day);
+        assertEquals(2, trainingService.listBetween(start, to).size());
+        assertEquals(1, trainingService.listByTrainerBetween("trainer1", start, to).size());
+
+        trainingService.list().forEach(training -> trainingDao.delete(training));
+        assertEquals(0, trainingService.listByTrainer("trainer1").size());
+        assertEquals(0, trainingService.listBetween(start, to).size());
+    }
+
+    @Test
+    void trainingTotals_OK() {
+        Date start = new Date(1_700_000_000_000L);
+        Training yoga = new Training("trainee1", "trainer1", "John Doe",
+                TrainingType.of("Yoga"), start, Duration.ofHours(1));
+        Training boxing = new Training("trainee1", "trainer2", "Max Payne",
+                TrainingType.of("Boxing"), new Date(start.getTime() + 1000), Duration.ofMinutes(90));
+
+        trainingService.createAll(List.of(yoga, boxing));
+        assertEquals(new TrainingTotals(2, Duration.ofMinutes(150)), trainingService.getTraineeTotals("trainee1"));
+        assertEquals(new TrainingTotals(1, Duration.ofHours(1)), trainingService.getTrainerTotals("trainer1"));
+
+        yoga.setTrainingDuration(Duration.ofHours(2));
+        trainingDao.update(yoga);
+        assertEquals(new TrainingTotals(1, Duration.ofHours(2)),
+                trainingService.getTrainingTypeTotals(TrainingType.of("Yoga")));
+
+        trainingDao.delete(boxing);
+        trainingDao.delete(boxing);
+        assertEquals(new TrainingTotals(1, Duration.ofHours(2)), trainingService.getTraineeTotals("trainee1"));
+        assertEquals(TrainingTotals.EMPTY, trainingService.getTrainerTotals("trainer2"));
+    }
+
+    @Test
+    void concurrentUpdatesKeepTotals_OK() {
+        TrainingDao concurrentDao = new TrainingDao(new TrainingStorage(new ConcurrentHashMap<>()));
+        Date start = new Date(1_700_000_000_000L);
+        concurrentDao.create(new Training("trainee1", "trainer1", "John Doe",
+                TrainingType.of("Yoga"), start, Duration.ofMinutes(1)));
+
+        List<CompletableFuture<Void>> writers = new ArrayList<>();
+        for (int writer = 0; writer < 8; writer++) {
+            int first = writer * 100;
+            writers.add(CompletableFuture.runAsync(() -> {
+                for (int minutes = first; minutes < first + 100; minutes++) {
+                    concurrentDao.update(new Training("trainee1", "trainer1", "John Doe",
+                            TrainingType.of("Yoga"), start, Duration.ofMinutes(minutes + 2)));
+                }
+            }));
+        }
+        writers.forEach(CompletableFuture::join);
+
+        //Whichever update won, the totals hold exactly that one training.
+        Duration stored = concurrentDao.getAll().get(0).getTrainingDuration();
+        assertEquals(new TrainingTotals(1, stored), concurrentDao.getTotalsByTraineeId("trainee1"));
+        assertEquals(new TrainingTotals(1, stored), concurrentDao.getTotalsByTrainingType(TrainingType.of("Yoga")));
+    }
+
     @Test
     void ListTrainingsEmpty_OK() {
         List<Training> trainings = trainingService.list();
@@ -0,0 +1,73 @@
+package com.example.springcrm.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsernameReservationsTest {
+    private final Set<String> stored = ConcurrentHashMap.newKeySet();
+    private final UsernameReservations reservations = new UsernameReservations(
+            stored::contains,
+            new UsernameSuffixRegistry(prefix -> stored.stream().filter(u -> u.startsWith(prefix)).toList()));
+
+    @Test
+    void claimSkipsStoredAndClaimedNames_OK() {
+        stored.add("Ivan.Ivanenko");
+
+        assertEquals("Ivan.Ivanenko1", reservations.claim("Ivan.Ivanenko"));
+        assertEquals("Ivan.Ivanenko2", reservations.claim("Ivan.Ivanenko"));
+        assertEquals("Petro.Petrenko", reservations.claim("Petro.Petrenko"));
+        assertEquals(3, reservations.size());
+
+        //A released claim that was never stored is free again.
+        reservations.release("Petro.Petrenko");
+        assertEquals("Petro.Petrenko", reservations.claim("Petro.Petrenko"));
+
+        reservations.releaseAll(List.of("Ivan.Ivanenko1", "Ivan.Ivanenko2", "Petro.Petrenko"));
+        assertEquals(0, reservations.size());
+    }
+
+    @Test
+    void concurrentClaimsAreUnique_OK() throws Exception {
+        int threads = 8;
+        int claimsPerThread = 200;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < claimsPerThread; i++) {
+                        String username = reservations.claim("Ivan.Ivanenko");
+                        assertFalse(stored.contains(username));
+                        //Half of the names get stored, the other half are given up.
+                        if (i % 2 == 0) {
+                            assertTrue(stored.add(username));
+                        }
+                        reservations.release(username);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(threads * claimsPerThread / 2, stored.size());
+        assertEquals(0, reservations.size());
+    }
+}
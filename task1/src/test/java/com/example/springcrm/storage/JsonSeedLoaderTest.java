@@ -0,0 +1,67 @@
+package com.example.springcrm.storage;
+
+import com.example.springcrm.model.Trainee;
+import com.example.springcrm.model.Training;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class JsonSeedLoaderTest {
+    private static final String FILE_PATH = "trainees.json";
+
+    @Test
+    void loadInBatches_OK() {
+        JsonSeedLoader seedLoader = new JsonSeedLoader(new ObjectMapper(), 2, null);
+        List<List<Trainee>> batches = new ArrayList<>();
+
+        long loaded = seedLoader.load(FILE_PATH, Trainee.class, batches::add);
+
+        assertEquals(3, loaded);
+        assertEquals(2, batches.size());
+        assertEquals(2, batches.get(0).size());
+        assertEquals("Ivan.Ivanenko", batches.get(0).get(0).getUsername());
+        assertEquals(1, batches.get(1).size());
+    }
+
+    @Test
+    void loadInParallel_OK() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        JsonSeedLoader seedLoader = new JsonSeedLoader(new ObjectMapper(), 1, pool);
+        List<Trainee> trainees = Collections.synchronizedList(new ArrayList<>());
+
+        seedLoader.load(FILE_PATH, Trainee.class, trainees::addAll);
+        pool.shutdown();
+
+        assertEquals(3, trainees.size());
+    }
+
+    @Test
+    void loadTrainings_OK() {
+        JsonSeedLoader seedLoader = new JsonSeedLoader(JsonSeedLoader.newObjectMapper(), 2, null);
+        List<Training> trainings = new ArrayList<>();
+
+        long loaded = seedLoader.load("trainings.json", Training.class, trainings::addAll);
+
+        assertEquals(trainings.size(), loaded);
+        assertEquals("Emma.Petrenko", trainings.get(0).getTraineeId());
+        assertEquals(Duration.ofHours(1), trainings.get(0).getTrainingDuration());
+        assertEquals(Instant.parse("2025-02-10T10:00:00Z"), trainings.get(0).getTrainingInstant());
+    }
+
+    @Test
+    void loadMissingFile_NotOK() {
+        JsonSeedLoader seedLoader = new JsonSeedLoader();
+
+        assertThrows(RuntimeException.class,
+                () -> seedLoader.load("missing.json", Trainee.class, batch -> { }));
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.springcrm.storage;
+
+import com.example.springcrm.dao.TrainingDao;
+import com.example.springcrm.model.Training;
+import com.example.springcrm.model.TrainingTotals;
+import com.example.springcrm.model.TrainingType;
+import com.example.springcrm.persistence.SnapshotManager;
+import com.example.springcrm.persistence.WriteAheadLogFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OffHeapTrainingStorageTest {
+
+    @TempDir
+    Path directory;
+
+    private OffHeapTrainingStorage storage;
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    @Test
+    void createGetUpdateDelete_OK() {
+        storage = new OffHeapTrainingStorage(directory.toString(), 2, new IdSequence());
+        Training training = newTraining("1", "2", "Yoga", 1000);
+
+        assertNotNull(storage.create(training));
+        assertNull(storage.create(training));
+        Training stored = storage.get(training.getId());
+        assertEquals(training, stored);
+        assertNotSame(stored, storage.get(training));
+
+        training.setTrainerName("Pilates basics");
+        storage.update(training);
+        assertEquals("Pilates basics", storage.get(training).getTrainerName());
+
+        storage.delete(training);
+        assertNull(storage.get(training));
+        assertEquals(0, storage.getUsedSlots());
+    }
+
+    @Test
+    void persistenceConfigured_Fail() {
+        storage = new OffHeapTrainingStorage(directory.toString(), 2, new IdSequence());
+        storage.setWriteAheadLogFactory(new WriteAheadLogFactory("", "always", 100));
+        SnapshotManager snapshotManager = new SnapshotManager(directory.resolve("snapshots").toString(), 3600);
+        storage.setSnapshotManager(snapshotManager);
+
+        assertThrows(IllegalStateException.class, storage::init);
+        snapshotManager.shutdown();
+    }
+
+    @Test
+    void slotsAreReusedAndFileGrows_OK() {
+        storage = new OffHeapTrainingStorage(directory.toString(), 2, new IdSequence());
+        for (int i = 0; i < 5; i++) {
+            storage.create(newTraining("1", "2", "Yoga", i));
+        }
+        storage.delete(newTraining("1", "2", "Yoga", 0));
+        storage.create(newTraining("1", "2", "Yoga", 10));
+
+        assertEquals(5, storage.getUsedSlots());
+        assertEquals(5, storage.getAll().size());
+        assertEquals(10, storage.getAll().get(4).getTrainingDate().getTime());
+    }
+
+    @Test
+    void queries_OK() {
+        storage = new OffHeapTrainingStorage(directory.toString(), 4, new IdSequence());
+        storage.createAll(List.of(
+                newTraining("1", "2", "Yoga", 1000),
+                newTraining("1", "3", "Boxing", 2000),
+                newTraining("4", "3", "Yoga", 3000)));
+
+        assertEquals(2, storage.getAllByTraineeId("1").size());
+        assertEquals(2, storage.getAllByTrainerId("3").size());
+        assertEquals(2, storage.getAllByTrainingType(TrainingType.of("Yoga")).size());
+        assertEquals(0, storage.getAllByTrainingType(TrainingType.find("Swimming")).size());
+        assertEquals(2, storage.getAllBetween(new Date(1000), new Date(3000)).size());
+        assertEquals(1, storage.getAllByTrainerIdBetween("3", new Date(0), new Date(2500)).size());
+        assertEquals(1, storage.getAllByTraineeIdBetween("1", new Date(1500), new Date(5000)).size());
+
+        Page<Training> first = storage.getPage(null, 2);
+        Page<Training> second = storage.getPage(first.getNextCursor(), 2);
+        assertEquals(2, first.getItems().size());
+        assertEquals(1, second.getItems().size());
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    void indexesFollowWrites_OK() {
+        storage = new OffHeapTrainingStorage(directory.toString(), 2, new IdSequence());
+        Training yoga = newTraining("1", "2", "Yoga", 1000);
+        Training boxing = newTraining("1", "3", "Boxing", 2000);
+        storage.createAll(List.of(yoga, boxing));
+
+        yoga.setTrainingType(TrainingType.of("Boxing"));
+        storage.update(yoga);
+        assertEquals(0, storage.getAllByTrainingType(TrainingType.of("Yoga")).size());
+        assertEquals(2, storage.getAllByTrainingType(TrainingType.of("Boxing")).size());
+
+        storage.delete(boxing);
+        assertEquals(List.of(yoga), storage.getAllByTraineeId("1"));
+        assertEquals(0, storage.getAllByTrainerId("3").size());
+
+        //Codes start over after cleanAll, queries must not see anything from before.
+        storage.cleanAll();
+        assertEquals(0, storage.getAllByTraineeId("1").size());
+        storage.create(newTraining("5", "6", "Yoga", 3000));
+        assertEquals(0, storage.getAllByTraineeId("1").size());
+        assertEquals(0, storage.getAllByTrainerId("2").size());
+        assertEquals("5", storage.getAllByTrainerId("6").get(0).getTraineeId());
+        assertEquals(1, storage.getAllByTrainingType(TrainingType.of("Yoga")).size());
+    }
+
+    @Test
+    void daoTotalsFollowStoredDuration_OK() {
+        storage = new OffHeapTrainingStorage(directory.toString(), 2, new IdSequence());
+        TrainingDao trainingDao = new TrainingDao(storage);
+        Training training = newTraining("1", "2", "Yoga", 1000);
+        training.setTrainingDuration(Duration.ofMillis(1500));
+
+        trainingDao.create(training);
+        assertEquals(Duration.ofSeconds(1), trainingDao.getTotalsByTraineeId("1").getTotalDuration());
+        trainingDao.delete(training);
+        assertEquals(TrainingTotals.EMPTY, trainingDao.getTotalsByTraineeId("1"));
+
+        trainingDao.create(training);
+        trainingDao.cleanAll();
+        assertEquals(TrainingTotals.EMPTY, trainingDao.getTotalsByTrainerId("2"));
+        assertEquals(0, storage.getUsedSlots());
+    }
+
+    private static Training newTraining(String traineeId, String trainerId, String type, long time) {
+        Training training = new Training();
+        training.setTraineeId(traineeId);
+        training.setTrainerId(trainerId);
+        training.setTrainerName(type + " basics");
+        training.setTrainingType(TrainingType.of(type));
+        training.setTrainingDate(new Date(time));
+        training.setTrainingDuration(Duration.ofMinutes(60));
+        return training;
+    }
+}
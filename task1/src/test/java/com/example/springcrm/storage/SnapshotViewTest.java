@@ -0,0 +1,40 @@
+package com.example.springcrm.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SnapshotViewTest {
+
+    @Test
+    void snapshotIsSharedUntilWrite_OK() {
+        SnapshotView<String> snapshotView = new SnapshotView<>();
+        List<String> values = new ArrayList<>(List.of("first"));
+
+        List<String> first = snapshotView.get(() -> values);
+        assertSame(first, snapshotView.get(() -> values));
+
+        values.add("second");
+        snapshotView.invalidate();
+
+        List<String> second = snapshotView.get(() -> values);
+        assertNotSame(first, second);
+        assertEquals(1, first.size());
+        assertEquals(2, second.size());
+    }
+
+    @Test
+    void snapshotIsImmutable_OK() {
+        SnapshotView<String> snapshotView = new SnapshotView<>();
+
+        List<String> snapshot = snapshotView.get(() -> List.of("first"));
+
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add("second"));
+    }
+}
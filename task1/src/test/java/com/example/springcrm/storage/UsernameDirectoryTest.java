@@ -0,0 +1,49 @@
+package com.example.springcrm.storage;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UsernameDirectoryTest {
+    private final UsernameDirectory usernameDirectory = new UsernameDirectory();
+
+    @Test
+    void registerAcrossOwners_OK() {
+        assertNull(usernameDirectory.register("Ivan.Ivanenko", "trainee"));
+        assertEquals("trainee", usernameDirectory.register("Ivan.Ivanenko", "trainer"));
+        assertEquals("trainee", usernameDirectory.register("Ivan.Ivanenko", "trainee"));
+        assertEquals("trainee", usernameDirectory.ownerOf("Ivan.Ivanenko"));
+
+        //Only the owner can give a username back.
+        usernameDirectory.unregister("Ivan.Ivanenko", "trainer");
+        assertTrue(usernameDirectory.contains("Ivan.Ivanenko"));
+        usernameDirectory.unregister("Ivan.Ivanenko", "trainee");
+        assertFalse(usernameDirectory.contains("Ivan.Ivanenko"));
+        assertEquals(0, usernameDirectory.size());
+    }
+
+    @Test
+    void nextFreeUsername_OK() {
+        assertEquals("Ivan.Ivanenko", usernameDirectory.nextFreeUsername("Ivan.Ivanenko"));
+
+        usernameDirectory.register("Ivan.Ivanenko", "trainee");
+        usernameDirectory.register("Ivan.Ivanenko1", "trainer");
+        usernameDirectory.register("Ivan.Ivanenko7", "trainee");
+        usernameDirectory.register("Ivan.Ivanenkov", "trainee");
+        assertEquals(7, usernameDirectory.lastSuffix("Ivan.Ivanenko"));
+        assertEquals("Ivan.Ivanenko8", usernameDirectory.nextFreeUsername("Ivan.Ivanenko"));
+
+        usernameDirectory.unregister("Ivan.Ivanenko7", "trainee");
+        assertEquals("Ivan.Ivanenko2", usernameDirectory.nextFreeUsername("Ivan.Ivanenko"));
+    }
+
+    @Test
+    void suffixOf_OK() {
+        assertEquals(0, UsernameDirectory.suffixOf("Ivan.Ivanenko"));
+        assertEquals(12, UsernameDirectory.suffixOf("Ivan.Ivanenko12"));
+        //Leading zeros and overly long numbers are part of the name, not a generated suffix.
+        assertEquals(0, UsernameDirectory.suffixOf("Ivan.Ivanenko01"));
+        assertEquals(0, UsernameDirectory.suffixOf("Ivan.Ivanenko1234567890"));
+        assertEquals(0, UsernameDirectory.suffixOf("123"));
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.springcrm.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static com.example.springcrm.SpringCrmApplicationTests.assertThatListsAreEqual;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class UsernameIndexTest {
+    private UsernameIndex usernameIndex;
+
+    @BeforeEach
+    void setUp() {
+        usernameIndex = new UsernameIndex();
+        usernameIndex.add("Ivan.Ivanenko");
+        usernameIndex.add("Ivan.Ivanenko1");
+        usernameIndex.add("Ivan.Ivanenko2");
+        usernameIndex.add("Petro.Ivanenko");
+        usernameIndex.add("Maria.Petrenko");
+    }
+
+    @Test
+    void prefixLookup_OK() {
+        assertEquals(
+                List.of("Ivan.Ivanenko", "Ivan.Ivanenko1", "Ivan.Ivanenko2"),
+                usernameIndex.withPrefix("Ivan.Ivanenko"));
+        assertTrue(usernameIndex.withPrefix("Sophia").isEmpty());
+    }
+
+    @Test
+    void substringLookup_OK() {
+        assertThatListsAreEqual(
+                List.of("Ivan.Ivanenko", "Ivan.Ivanenko1", "Ivan.Ivanenko2", "Petro.Ivanenko"),
+                usernameIndex.containing(".Ivanenko"));
+        assertThatListsAreEqual(
+                List.of("Ivan.Ivanenko1"),
+                usernameIndex.containing("ko1"));
+        //Shorter than a trigram.
+        assertThatListsAreEqual(
+                List.of("Ivan.Ivanenko2"),
+                usernameIndex.containing("2"));
+    }
+
+    @Test
+    void removedUsernameIsNotFound_OK() {
+        usernameIndex.remove("Ivan.Ivanenko1");
+
+        assertEquals(
+                List.of("Ivan.Ivanenko", "Ivan.Ivanenko2"),
+                usernameIndex.withPrefix("Ivan.Ivanenko"));
+        assertTrue(usernameIndex.containing("ko1").isEmpty());
+    }
+}